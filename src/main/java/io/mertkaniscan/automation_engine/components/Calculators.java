@@ -27,15 +27,40 @@ public class Calculators {
             double[] windSpeed, double[] weights, double wettedArea, double totalArea, double FieldCapacity,
             double WiltingPoint, double Ze, double DePrev, double dailyRainfall, double irrigation, double albedo) {
 
-        // Ağırlıklı ortalamaları hesapla
-        double avgKcb = calculateWeightedAverage(Kcb, weights);
-        double avgT = calculateWeightedAverage(T, weights);
-        double avgHumidity = calculateWeightedAverage(humidity, weights);
-        double avgPressure = calculateWeightedAverage(pressure, weights);
-        double avgGhi = calculateWeightedAverage(ghi, weights);
-        double avgDni = calculateWeightedAverage(dni, weights);
-        double avgDhi = calculateWeightedAverage(dhi, weights);
-        double avgWindSpeed = calculateWeightedAverage(windSpeed, weights);
+        int n = weights.length;
+        if (Kcb.length != n || T.length != n || humidity.length != n || pressure.length != n || ghi.length != n
+                || dni.length != n || dhi.length != n || windSpeed.length != n) {
+            throw new IllegalArgumentException("Values and weights arrays must have the same length.");
+        }
+
+        // Ağırlıklı ortalamaları tek geçişte hesapla
+        double sumKcb = 0, sumT = 0, sumHumidity = 0, sumPressure = 0, sumGhi = 0, sumDni = 0, sumDhi = 0, sumWindSpeed = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < n; i++) {
+            double w = weights[i];
+            sumKcb += Kcb[i] * w;
+            sumT += T[i] * w;
+            sumHumidity += humidity[i] * w;
+            sumPressure += pressure[i] * w;
+            sumGhi += ghi[i] * w;
+            sumDni += dni[i] * w;
+            sumDhi += dhi[i] * w;
+            sumWindSpeed += windSpeed[i] * w;
+            totalWeight += w;
+        }
+
+        if (totalWeight == 0.0) {
+            throw new IllegalArgumentException("Total weight cannot be zero.");
+        }
+
+        double avgKcb = sumKcb / totalWeight;
+        double avgT = sumT / totalWeight;
+        double avgHumidity = sumHumidity / totalWeight;
+        double avgPressure = sumPressure / totalWeight;
+        double avgGhi = sumGhi / totalWeight;
+        double avgDni = sumDni / totalWeight;
+        double avgDhi = sumDhi / totalWeight;
+        double avgWindSpeed = sumWindSpeed / totalWeight;
 
         // Tam ETc Dual hesaplama
         return calculateFullETcDual(avgKcb, avgT, avgHumidity, avgPressure, avgGhi, avgDni, avgDhi, avgWindSpeed,
@@ -86,6 +111,60 @@ public class Calculators {
     }
 
 
+    /**
+     * ETo, Ke and ETc dual for every field and hour of the batch, in one fused pass. Gives the
+     * same values as calculateFullETcDual per sample (dni and dhi do not enter Rn there either),
+     * with the field constants hoisted out of the hour loop and no calls besides one Math.exp
+     * per sample, so the loop body is straight-line arithmetic the JIT can unroll and schedule
+     * well. ETc is not validated per sample the way calculateEact does.
+     */
+    public static void calculateBatchETcDual(EtBatch batch, double albedo) {
+        int hours = batch.getHours();
+        double radiationFactor = 1 - albedo;
+
+        double[] temperature = batch.temperature;
+        double[] humidity = batch.humidity;
+        double[] pressure = batch.pressure;
+        double[] ghi = batch.ghi;
+        double[] windSpeed = batch.windSpeed;
+        double[] eto = batch.eto;
+        double[] ke = batch.ke;
+        double[] etc = batch.etc;
+
+        for (int field = 0; field < batch.getFieldCount(); field++) {
+            double kcb = batch.kcb[field];
+            double kr = batch.kr[field];
+            double fw = batch.fw[field];
+            int start = field * hours;
+            int end = start + hours;
+
+            for (int i = start; i < end; i++) {
+                double T = temperature[i];
+                double rh = humidity[i];
+                double u = windSpeed[i];
+
+                double tPlus = T + 237.3;
+                double es = 0.6108 * Math.exp((17.27 * T) / tPlus);
+                double ea = es * (rh / 100.0);
+                double delta = (4098 * es) / (tPlus * tPlus);
+                double gamma = 0.000665 * pressure[i];
+                double Rn = ghi[i] * radiationFactor;
+
+                double sampleEto = (0.408 * delta * Rn + gamma * (900 / (T + 273)) * u * (es - ea))
+                        / (delta + gamma * (1 + 0.34 * u));
+
+                // calculateKcMax inlined: the climate correction applies only in dry or windy hours
+                double correction = (rh < 40 || u > 5) ? (0.04 * (u - 2)) - (0.004 * (rh - 45)) : 0.0;
+                double kcMax = kcb + 0.05 + correction;
+                double sampleKe = Math.min(kr * kcMax, fw * kcMax);
+
+                eto[i] = sampleEto;
+                ke[i] = sampleKe;
+                etc[i] = sampleEto * (kcb + sampleKe);
+            }
+        }
+    }
+
     // Calculate ETc with dual crop coefficient
     public static double calculateETcDual(double Kcb, double Ke, double ETo) {
         return ETo * (Kcb + Ke); // ETc in mm/day
@@ -185,7 +264,8 @@ public class Calculators {
 
     // Calculate Delta (Slope of saturation vapor pressure curve)
     public static double calculateDelta(double es, double T) {
-        return (4098 * es) / Math.pow((T + 237.3), 2);
+        double tPlus = T + 237.3;
+        return (4098 * es) / (tPlus * tPlus);
     }
 
     // Calculate Psychrometric constant (gamma)
@@ -0,0 +1,96 @@
+package io.mertkaniscan.automation_engine.components;
+
+/**
+ * Structure-of-arrays input and output of Calculators.calculateBatchETcDual for many fields
+ * over the same number of hours. Hourly arrays are laid out field-major (index = field *
+ * hours + hour), so one field's hours are contiguous and the inner loop walks every array
+ * with unit stride. Per-field soil and crop terms are reduced to constants up front.
+ */
+public class EtBatch {
+
+    private final int fieldCount;
+    private final int hours;
+
+    // Hourly inputs
+    final double[] temperature;
+    final double[] humidity;
+    final double[] pressure;
+    final double[] ghi;
+    final double[] windSpeed;
+
+    // Per-field inputs: basal crop coefficient, evaporation reduction and wetted fraction
+    final double[] kcb;
+    final double[] kr;
+    final double[] fw;
+
+    // Hourly outputs
+    final double[] eto;
+    final double[] ke;
+    final double[] etc;
+
+    public EtBatch(int fieldCount, int hours) {
+        if (fieldCount <= 0 || hours <= 0) {
+            throw new IllegalArgumentException("Field count and hours must be positive.");
+        }
+        this.fieldCount = fieldCount;
+        this.hours = hours;
+
+        int samples = Math.multiplyExact(fieldCount, hours);
+        this.temperature = new double[samples];
+        this.humidity = new double[samples];
+        this.pressure = new double[samples];
+        this.ghi = new double[samples];
+        this.windSpeed = new double[samples];
+        this.kcb = new double[fieldCount];
+        this.kr = new double[fieldCount];
+        this.fw = new double[fieldCount];
+        this.eto = new double[samples];
+        this.ke = new double[samples];
+        this.etc = new double[samples];
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    public int index(int field, int hour) {
+        return field * hours + hour;
+    }
+
+    public void setHour(int field, int hour, double T, double humidity, double pressure, double ghi, double windSpeed) {
+        int i = index(field, hour);
+        this.temperature[i] = T;
+        this.humidity[i] = humidity;
+        this.pressure[i] = pressure;
+        this.ghi[i] = ghi;
+        this.windSpeed[i] = windSpeed;
+    }
+
+    // Same soil water balance as calculateFullETcDual, evaluated once per field instead of once per sample
+    public void setField(int field, double Kcb, double wettedArea, double totalArea, double FieldCapacity,
+                         double WiltingPoint, double Ze, double DePrev, double dailyRainfall, double irrigation) {
+        double TEW = Calculators.calculateTEW(FieldCapacity, WiltingPoint, Ze);
+        double REW = Calculators.calculateREW(TEW);
+        double De = Calculators.calculateDe(DePrev, dailyRainfall, irrigation, 0, TEW);
+
+        this.kcb[field] = Kcb;
+        this.kr[field] = Calculators.calculateKr(De, TEW, REW);
+        this.fw[field] = Calculators.calculateFw(wettedArea, totalArea);
+    }
+
+    public double getETo(int field, int hour) {
+        return eto[index(field, hour)];
+    }
+
+    public double getKe(int field, int hour) {
+        return ke[index(field, hour)];
+    }
+
+    public double getETc(int field, int hour) {
+        return etc[index(field, hour)];
+    }
+}
@@ -21,4 +21,15 @@ public enum FetchInterval {
     public long toMilliseconds() {
         return seconds * 1000L;
     }
+
+    // Next longer interval, or this one when it is already the longest
+    public FetchInterval longer() {
+        FetchInterval[] intervals = values();
+        return ordinal() < intervals.length - 1 ? intervals[ordinal() + 1] : this;
+    }
+
+    // Next shorter interval, or this one when it is already the shortest
+    public FetchInterval shorter() {
+        return ordinal() > 0 ? values()[ordinal() - 1] : this;
+    }
 }
@@ -0,0 +1,99 @@
+package io.mertkaniscan.automation_engine.components;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-rate scheduler that spreads every FetchInterval cohort across its period.
+ * Each device gets a deterministic phase offset (a golden-ratio sequence over its ID),
+ * and ticks are aligned to the wall clock. A device therefore polls at the same offset
+ * after every restart or interval change, and consecutive IDs land far apart instead
+ * of all firing at the top of the minute.
+ */
+@Component
+public class PollScheduler {
+
+    // Fractional part of the golden ratio; i * PHI mod 1 is the most evenly spread sequence over [0, 1)
+    private static final double PHI = 0.6180339887498949;
+
+    private final TimerWheelScheduler timerWheelScheduler;
+    private final Map<Integer, ScheduledPoll> scheduledPolls = new ConcurrentHashMap<>();
+
+    public PollScheduler(TimerWheelScheduler timerWheelScheduler) {
+        this.timerWheelScheduler = timerWheelScheduler;
+    }
+
+    public record LoadHistogram(int periodSeconds, int peakPollsPerSecond, Map<Integer, Integer> secondsByPollCount) {
+    }
+
+    private record ScheduledPoll(long intervalMs, long phaseMs, TimerWheelScheduler.Timer timer) {
+    }
+
+    // Replaces any existing schedule of the device
+    public void schedule(int deviceID, FetchInterval interval, Runnable task) {
+        cancel(deviceID);
+
+        long intervalMs = interval.toMilliseconds();
+        long phaseMs = phaseOffsetMs(deviceID, intervalMs);
+        long initialDelayMs = Math.floorMod(phaseMs - System.currentTimeMillis(), intervalMs);
+
+        TimerWheelScheduler.Timer timer = timerWheelScheduler.scheduleAtFixedRate(task, initialDelayMs, intervalMs, TimeUnit.MILLISECONDS);
+        scheduledPolls.put(deviceID, new ScheduledPoll(intervalMs, phaseMs, timer));
+    }
+
+    public boolean cancel(int deviceID) {
+        ScheduledPoll scheduledPoll = scheduledPolls.remove(deviceID);
+        if (scheduledPoll == null) {
+            return false;
+        }
+        timerWheelScheduler.cancel(scheduledPoll.timer());
+        return true;
+    }
+
+    public static long phaseOffsetMs(int deviceID, long intervalMs) {
+        double fraction = (Integer.toUnsignedLong(deviceID) * PHI) % 1.0;
+        return (long) (fraction * intervalMs);
+    }
+
+    /**
+     * Polls started in each second of one full schedule period (the LCM of all scheduled
+     * intervals), summarised as "polls per second" to "number of seconds with that load".
+     */
+    public LoadHistogram getLoadHistogram() {
+        int periodSeconds = 1;
+        for (ScheduledPoll scheduledPoll : scheduledPolls.values()) {
+            periodSeconds = lcm(periodSeconds, (int) (scheduledPoll.intervalMs() / 1000));
+        }
+
+        int[] pollsPerSecond = new int[periodSeconds];
+        for (ScheduledPoll scheduledPoll : scheduledPolls.values()) {
+            int intervalSeconds = (int) (scheduledPoll.intervalMs() / 1000);
+            for (int second = (int) (scheduledPoll.phaseMs() / 1000); second < periodSeconds; second += intervalSeconds) {
+                pollsPerSecond[second]++;
+            }
+        }
+
+        Map<Integer, Integer> secondsByPollCount = new TreeMap<>();
+        int peak = 0;
+        for (int polls : pollsPerSecond) {
+            secondsByPollCount.merge(polls, 1, Integer::sum);
+            peak = Math.max(peak, polls);
+        }
+        return new LoadHistogram(periodSeconds, peak, secondsByPollCount);
+    }
+
+    private static int lcm(int a, int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            int t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+}
@@ -1,12 +1,18 @@
 package io.mertkaniscan.automation_engine.components;
 
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
 import io.mertkaniscan.automation_engine.models.Device;
 import io.mertkaniscan.automation_engine.models.SensorData;
 
 import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
-import io.mertkaniscan.automation_engine.services.main_services.SensorDataService;
+import io.mertkaniscan.automation_engine.services.main_services.RecentReadingsService;
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataIngestionService;
+import io.mertkaniscan.automation_engine.services.device_services.DeviceCircuitBreaker;
+import io.mertkaniscan.automation_engine.services.device_services.DevicePushServer;
+import io.mertkaniscan.automation_engine.services.device_services.DeviceHealthTracker;
 import io.mertkaniscan.automation_engine.services.device_services.SensorDataSocketService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.apache.logging.log4j.Logger;
@@ -29,10 +35,40 @@ public class ScheduledSensorDataFetcher {
     private SensorDataSocketService sensorDataSocketService;
 
     @Autowired
-    private SensorDataService sensorDataService;
+    private DevicePushServer devicePushServer;
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
-    private final Map<Integer, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    @Autowired
+    private DeviceHealthTracker deviceHealthTracker;
+
+    @Autowired
+    private DeviceCircuitBreaker deviceCircuitBreaker;
+
+    @Autowired
+    private SensorDataIngestionService sensorDataIngestionService;
+
+    @Autowired
+    private RecentReadingsService recentReadingsService;
+
+    // Replies are persisted here, off the poll engine's selector thread
+    @Autowired
+    @Qualifier("deviceIoExecutor")
+    private ExecutorService deviceIoExecutor;
+
+    // Ticks run on the shared timer wheel and only submit to the poll engine
+    @Autowired
+    private PollScheduler pollScheduler;
+
+    @Autowired
+    private DeviceProperties deviceProperties;
+
+    private final Map<Integer, CompletableFuture<?>> inFlightPolls = new ConcurrentHashMap<>();
+
+    // Interval each device is currently polled at; differs from its FetchInterval in adaptive mode
+    private final Map<Integer, FetchInterval> currentIntervals = new ConcurrentHashMap<>();
+    private final Map<Integer, Device> scheduledDevices = new ConcurrentHashMap<>();
+
+    // Field ID to the time until which its sensors are kept on the shortest interval
+    private final Map<Integer, Long> irrigatingUntil = new ConcurrentHashMap<>();
 
 
     public void initializeDeviceTasks() {
@@ -45,58 +81,192 @@ public class ScheduledSensorDataFetcher {
     public void scheduleDeviceTask(Device device) {
         FetchInterval interval = device.getFetchInterval() != null ? device.getFetchInterval() : FetchInterval.ONE_MINUTE;
 
-        cancelExistingTask(device.getDeviceID());
+        if (deviceProperties.getAdaptive().isEnabled() && isIrrigating(device)) {
+            interval = deviceProperties.getAdaptive().getMinInterval();
+        }
+        scheduleAt(device, interval);
+    }
+
+    private void scheduleAt(Device device, FetchInterval interval) {
+        scheduledDevices.put(device.getDeviceID(), device);
+        currentIntervals.put(device.getDeviceID(), interval);
 
-        ScheduledFuture<?> scheduledTask = scheduler.scheduleAtFixedRate(() -> fetchSensorDataForDevice(device), 0, interval.toMilliseconds(), TimeUnit.MILLISECONDS);
-        scheduledTasks.put(device.getDeviceID(), scheduledTask);
+        // Each device keeps a fixed phase within its interval so a cohort does not fire all at once
+        pollScheduler.schedule(device.getDeviceID(), interval, () -> fetchSensorDataForDevice(device));
+    }
+
+    // Called when valves open on a field; its sensors are polled at the shortest interval until the water has settled
+    public void onIrrigationStarted(int fieldID, long durationMs) {
+        DeviceProperties.Adaptive adaptive = deviceProperties.getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return;
+        }
+
+        irrigatingUntil.merge(fieldID, System.currentTimeMillis() + durationMs + adaptive.getIrrigationSettleMs(), Math::max);
+
+        for (Device device : scheduledDevices.values()) {
+            if (device.getField() != null && device.getField().getFieldID() == fieldID
+                    && currentIntervals.get(device.getDeviceID()) != adaptive.getMinInterval()) {
+                logger.info("Irrigation started on field {}, polling device {} every {}.", fieldID, device.getDeviceID(), adaptive.getMinInterval());
+                scheduleAt(device, adaptive.getMinInterval());
+            }
+        }
+    }
+
+    private boolean isIrrigating(Device device) {
+        if (device.getField() == null) {
+            return false;
+        }
+        Long until = irrigatingUntil.get(device.getField().getFieldID());
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    // Widens quiet devices and narrows changing ones by one FetchInterval step per poll, within the configured bounds
+    private void adaptInterval(Device device, List<SensorData> sensorDataList) {
+        DeviceProperties.Adaptive adaptive = deviceProperties.getAdaptive();
+        FetchInterval current = currentIntervals.get(device.getDeviceID());
+        if (current == null || device.getField() == null) {
+            return;
+        }
+
+        FetchInterval next;
+        if (isIrrigating(device)) {
+            next = adaptive.getMinInterval();
+        } else {
+            double variability = relativeVariability(device.getDeviceID(), sensorDataList,
+                    System.currentTimeMillis() - adaptive.getWindowPolls() * current.toMilliseconds());
+
+            if (Double.isNaN(variability)) {
+                // Not enough history at this interval yet
+                return;
+            }
+            if (variability < adaptive.getWidenBelow()) {
+                next = current.longer();
+            } else if (variability > adaptive.getNarrowAbove()) {
+                next = current.shorter();
+            } else {
+                return;
+            }
+        }
+
+        next = clamp(next, adaptive.getMinInterval(), adaptive.getMaxInterval());
+        if (next != current) {
+            logger.info("Polling device {} every {} instead of {}.", device.getDeviceID(), next, current);
+            scheduleAt(device, next);
+        }
+    }
+
+    // Largest stddev / |mean| across the device's own data types over the window, NaN when the window is not in memory
+    private double relativeVariability(int deviceID, List<SensorData> sensorDataList, long sinceMs) {
+        double maxVariability = Double.NaN;
+
+        for (SensorData sensorData : sensorDataList) {
+            // count, mean, M2 (Welford)
+            double[] stats = new double[3];
+            boolean covered = recentReadingsService.forEachDeviceReadingSince(deviceID, sensorData.getDataType(), sinceMs, (timestamp, value) -> {
+                stats[0]++;
+                double delta = value - stats[1];
+                stats[1] += delta / stats[0];
+                stats[2] += delta * (value - stats[1]);
+            });
+            if (!covered || stats[0] < 2) {
+                continue;
+            }
+
+            double stdDev = Math.sqrt(stats[2] / (stats[0] - 1));
+            double variability = stdDev / Math.max(Math.abs(stats[1]), 1e-9);
+            if (Double.isNaN(maxVariability) || variability > maxVariability) {
+                maxVariability = variability;
+            }
+        }
+        return maxVariability;
+    }
+
+    private static FetchInterval clamp(FetchInterval interval, FetchInterval min, FetchInterval max) {
+        if (interval.compareTo(min) < 0) {
+            return min;
+        }
+        if (interval.compareTo(max) > 0) {
+            return max;
+        }
+        return interval;
     }
 
     private void fetchSensorDataForDevice(Device device) {
-        if (device.isSensor()) {
-            try {
-                List<SensorData> sensorDataList = sensorDataSocketService.fetchSensorData(device.getDeviceID());
+        if (!device.isSensor()) {
+            return;
+        }
 
-                for (SensorData sensorData : sensorDataList) {
-                    sensorDataService.saveSensorData(sensorData);
-                }
+        // Devices streaming over the push server deliver readings on their own
+        if (devicePushServer.isStreaming(device.getDeviceID())) {
+            return;
+        }
+
+        // Unreachable devices are only probed once their backoff has elapsed
+        if (!deviceCircuitBreaker.isCallPermitted(device.getDeviceID())) {
+            logger.debug("Circuit open for device {}, skipping this tick.", device.getDeviceID());
+            return;
+        }
 
-                if (!sensorDataList.isEmpty()) {
-                    logger.info("Sensor data fetched and saved for device {}.", device.getDeviceID());
+        CompletableFuture<?> previousPoll = inFlightPolls.get(device.getDeviceID());
+        if (previousPoll != null && !previousPoll.isDone()) {
+            logger.debug("Previous poll for device {} still in flight, skipping this tick.", device.getDeviceID());
+            return;
+        }
 
-                    if (!"ACTIVE".equals(device.getDeviceStatus())) {
-                        device.setDeviceStatus(Device.DeviceStatus.ACTIVE);
-                        deviceService.updateDevice(device.getDeviceID(), device);
+        CompletableFuture<?> poll = sensorDataSocketService.fetchSensorDataAsync(device.getDeviceID())
+                .whenCompleteAsync((sensorDataList, throwable) -> {
+                    if (throwable != null) {
+                        handleFetchFailure(device, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                    } else {
+                        handleFetchResult(device, sensorDataList);
                     }
-                } else {
-                    logger.warn("No valid sensor data received from device {}.", device.getDeviceID());
-                }
+                }, deviceIoExecutor);
+
+        inFlightPolls.put(device.getDeviceID(), poll);
+    }
 
-            } catch (Exception e) {
-                logger.error("Error fetching sensor data for device {}: {}", device.getDeviceID(), e.getMessage());
+    private void handleFetchResult(Device device, List<SensorData> sensorDataList) {
+        try {
+            sensorDataIngestionService.enqueue(sensorDataList);
+            recentReadingsService.record(sensorDataList);
 
-                // If the sensor data can't be fetched, mark the device as inactive
-                if (!"INACTIVE".equals(device.getDeviceStatus())) {
-                    device.setDeviceStatus(Device.DeviceStatus.INACTIVE);
-                    deviceService.updateDevice(device.getDeviceID(), device);
+            if (!sensorDataList.isEmpty()) {
+                logger.info("Sensor data fetched and queued for device {}.", device.getDeviceID());
+
+                if (deviceProperties.getAdaptive().isEnabled()) {
+                    adaptInterval(device, sensorDataList);
                 }
+
+                // Persisted in the next batch only if the device was inactive
+                deviceHealthTracker.markAlive(device.getDeviceID());
+            } else {
+                logger.warn("No valid sensor data received from device {}.", device.getDeviceID());
             }
+
+        } catch (Exception e) {
+            handleFetchFailure(device, e);
         }
     }
 
-    private void cancelExistingTask(int deviceID) {
-        ScheduledFuture<?> scheduledTask = scheduledTasks.get(deviceID);
-        if (scheduledTask != null && !scheduledTask.isCancelled()) {
-            scheduledTask.cancel(false);
-            logger.info("Cancelled existing task for device {}.", deviceID);
-        }
+    private void handleFetchFailure(Device device, Throwable e) {
+        logger.error("Error fetching sensor data for device {}: {}", device.getDeviceID(), e.getMessage());
+
+        // If the sensor data can't be fetched, mark the device as inactive
+        deviceHealthTracker.markUnreachable(device.getDeviceID());
     }
 
-    public void rescheduleDeviceTask(int deviceID, FetchInterval newInterval) {
-        // Fetch the device and update its interval
-        Device device = deviceService.getDeviceById(deviceID);
-        if (device != null) {
-            device.setFetchInterval(newInterval);
-            scheduleDeviceTask(device);
+    public PollScheduler.LoadHistogram getPollLoadHistogram() {
+        return pollScheduler.getLoadHistogram();
+    }
+
+    // Persists the new interval and reschedules the saved device; false when the device does not exist
+    public boolean rescheduleDeviceTask(int deviceID, FetchInterval newInterval) {
+        Device device = deviceService.updateDeviceFetchInterval(deviceID, newInterval);
+        if (device == null) {
+            return false;
         }
+        scheduleDeviceTask(device);
+        return true;
     }
 }
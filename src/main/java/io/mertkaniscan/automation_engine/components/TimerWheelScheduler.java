@@ -0,0 +1,189 @@
+package io.mertkaniscan.automation_engine.components;
+
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.utils.HashedTimerWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Application-wide timer service backed by a hashed timer wheel, replacing one heap-based
+ * scheduler per feature. Scheduling and cancelling are O(1) from any thread: requests are
+ * queued and applied by the single tick thread, which owns the wheel. Expired tasks never
+ * run on the tick thread, they are handed to the device I/O executor.
+ */
+@Component
+public class TimerWheelScheduler {
+
+    private static final Logger logger = LogManager.getLogger(TimerWheelScheduler.class);
+
+    private final DeviceProperties deviceProperties;
+    private final ExecutorService deviceIoExecutor;
+
+    private final Queue<Timer> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Timer> cancellations = new ConcurrentLinkedQueue<>();
+
+    // Only touched by the tick thread
+    private HashedTimerWheel<Timer> wheel;
+
+    private Thread tickThread;
+    private volatile boolean running;
+
+    public TimerWheelScheduler(DeviceProperties deviceProperties, @Qualifier("deviceIoExecutor") ExecutorService deviceIoExecutor) {
+        this.deviceProperties = deviceProperties;
+        this.deviceIoExecutor = deviceIoExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        DeviceProperties.Timer timer = deviceProperties.getTimer();
+        wheel = new HashedTimerWheel<>(timer.getTickMs(), timer.getWheelSize(), System.currentTimeMillis());
+        running = true;
+
+        tickThread = new Thread(this::runTickLoop, "timer-wheel");
+        tickThread.setDaemon(true);
+        tickThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (tickThread != null) {
+            LockSupport.unpark(tickThread);
+        }
+    }
+
+    /**
+     * Handle of a scheduled task. Cancelling is idempotent and never interrupts a run that
+     * has already been handed to the executor.
+     */
+    public static final class Timer {
+        private final Runnable task;
+        private final long periodMs;
+        private volatile long deadline;
+        private volatile boolean cancelled;
+
+        // Owned by the tick thread
+        private HashedTimerWheel.Timeout<Timer> timeout;
+
+        private Timer(Runnable task, long deadline, long periodMs) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodMs = periodMs;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    public Timer schedule(Runnable task, long delay, TimeUnit unit) {
+        return submit(new Timer(task, System.currentTimeMillis() + unit.toMillis(delay), 0));
+    }
+
+    public Timer scheduleAt(Runnable task, long deadlineMs) {
+        return submit(new Timer(task, deadlineMs, 0));
+    }
+
+    // Fixed-rate: each run is due one period after the previous deadline, so ticks do not drift
+    public Timer scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive.");
+        }
+        return submit(new Timer(task, System.currentTimeMillis() + unit.toMillis(initialDelay), unit.toMillis(period)));
+    }
+
+    public boolean cancel(Timer timer) {
+        if (timer == null || timer.cancelled) {
+            return false;
+        }
+        timer.cancelled = true;
+        cancellations.add(timer);
+        return true;
+    }
+
+    private Timer submit(Timer timer) {
+        if (!running) {
+            throw new RejectedExecutionException("Timer wheel scheduler is not running.");
+        }
+        additions.add(timer);
+        if (timer.deadline - System.currentTimeMillis() < wheel.getTickMs()) {
+            LockSupport.unpark(tickThread);
+        }
+        return timer;
+    }
+
+    private void runTickLoop() {
+        long tickMs = wheel.getTickMs();
+
+        while (running) {
+            try {
+                Timer timer;
+                while ((timer = additions.poll()) != null) {
+                    if (!timer.cancelled) {
+                        timer.timeout = wheel.schedule(timer, timer.deadline);
+                    }
+                }
+                while ((timer = cancellations.poll()) != null) {
+                    if (timer.timeout != null) {
+                        timer.timeout.cancel();
+                    }
+                }
+
+                wheel.advance(System.currentTimeMillis(), this::fire);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(tickMs));
+
+            } catch (Exception e) {
+                logger.error("Unexpected error in timer wheel loop.", e);
+            }
+        }
+        logger.info("Timer wheel scheduler stopped with {} pending timers.", wheel.size());
+    }
+
+    private void fire(Timer timer) {
+        if (timer.cancelled) {
+            return;
+        }
+
+        if (timer.periodMs > 0) {
+            // Runs missed while the process was stalled are skipped rather than fired back to back
+            long now = System.currentTimeMillis();
+            do {
+                timer.deadline += timer.periodMs;
+            } while (timer.deadline <= now);
+            timer.timeout = wheel.schedule(timer, timer.deadline);
+        } else {
+            timer.timeout = null;
+        }
+
+        try {
+            deviceIoExecutor.execute(() -> {
+                try {
+                    timer.task.run();
+                } catch (Exception e) {
+                    logger.error("Scheduled task failed.", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Dropping timer task, executor is shut down.");
+        }
+    }
+
+    public int getPendingTimerCount() {
+        return wheel.size() + additions.size();
+    }
+}
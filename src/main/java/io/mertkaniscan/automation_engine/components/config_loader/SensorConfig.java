@@ -6,6 +6,8 @@ public class SensorConfig {
 
     private String type;
     private List<String> expectedDataTypes;
+    // Identifies the value order of compact binary telemetry frames, see BinaryTelemetryFrame
+    private Integer schemaId;
 
     public String getType() {
         return type;
@@ -22,4 +24,12 @@ public class SensorConfig {
     public void setExpectedDataTypes(List<String> expectedDataTypes) {
         this.expectedDataTypes = expectedDataTypes;
     }
+
+    public Integer getSchemaId() {
+        return schemaId;
+    }
+
+    public void setSchemaId(Integer schemaId) {
+        this.schemaId = schemaId;
+    }
 }
\ No newline at end of file
@@ -1,19 +1,44 @@
 package io.mertkaniscan.automation_engine.config;
 
+import io.mertkaniscan.automation_engine.utils.DeviceExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @ComponentScan(basePackages = "io.mertkaniscan.automation_engine")
 public class AppConfig {
 
-    @Bean
-    public ExecutorService clientHandlerPool() {
-        return Executors.newCachedThreadPool();
+    private static final Logger logger = LogManager.getLogger(AppConfig.class);
+
+    // Shared executor for every blocking device conversation (join handshakes, actuator commands, poll results)
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService deviceIoExecutor(DeviceProperties deviceProperties, MeterRegistry meterRegistry) {
+        DeviceProperties.Execution execution = deviceProperties.getExecution();
+        DeviceProperties.Execution.Mode mode = execution.getMode();
+        ExecutorService executor;
+
+        if (mode == DeviceProperties.Execution.Mode.VIRTUAL && !DeviceExecutors.isVirtualThreadSupported()) {
+            logger.warn("Virtual thread execution requested but not supported on Java {}, using platform threads.",
+                    Runtime.version().feature());
+            mode = DeviceProperties.Execution.Mode.PLATFORM;
+        }
+
+        if (mode == DeviceProperties.Execution.Mode.VIRTUAL) {
+            executor = DeviceExecutors.newVirtualExecutor();
+        } else {
+            executor = DeviceExecutors.newPlatformExecutor(execution.getPlatformThreads(), "device-io");
+        }
+
+        logger.info("Device I/O executor running on {} threads.", mode.name().toLowerCase());
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "device.io", Tags.of("mode", mode.name().toLowerCase()));
     }
 
     @Bean
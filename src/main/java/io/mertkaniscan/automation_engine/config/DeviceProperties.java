@@ -0,0 +1,504 @@
+package io.mertkaniscan.automation_engine.config;
+
+import io.mertkaniscan.automation_engine.components.FetchInterval;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "device")
+public class DeviceProperties {
+
+    private int port = 5000;
+
+    private Pool pool = new Pool();
+
+    private Poll poll = new Poll();
+
+    private Execution execution = new Execution();
+
+    private Ingestion ingestion = new Ingestion();
+
+    private Recent recent = new Recent();
+
+    private Timer timer = new Timer();
+
+    private Adaptive adaptive = new Adaptive();
+
+    private Health health = new Health();
+
+    private Breaker breaker = new Breaker();
+
+    private Actuation actuation = new Actuation();
+
+    private Join join = new Join();
+
+    // Settings of the poll engine's persistent channel per device IP
+    public static class Pool {
+        // Channels unused for longer than this are closed by the poll engine
+        private long idleTimeoutMs = 5 * 60 * 1000L;
+
+        // An offline node fails here instead of at the overall request deadline
+        private int connectTimeoutMs = 3000;
+
+        // Time allowed for a connected device to answer once the request is written
+        private int readTimeoutMs = 10000;
+
+        public long getIdleTimeoutMs() {
+            return idleTimeoutMs;
+        }
+
+        public void setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+
+        public int getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(int connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public int getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        public void setReadTimeoutMs(int readTimeoutMs) {
+            this.readTimeoutMs = readTimeoutMs;
+        }
+    }
+
+    public static class Poll {
+        // Overall deadline for one send_sensordata round trip, queueing and connect included
+        private long requestTimeoutMs = 20000;
+
+        // Default deadline for reading all sensors of a field at once; late devices are reported as timed out
+        private long fanOutTimeoutMs = 5000;
+
+        private long timerTickMs = 100;
+
+        private int timerWheelSize = 512;
+
+        public long getRequestTimeoutMs() {
+            return requestTimeoutMs;
+        }
+
+        public void setRequestTimeoutMs(long requestTimeoutMs) {
+            this.requestTimeoutMs = requestTimeoutMs;
+        }
+
+        public long getFanOutTimeoutMs() {
+            return fanOutTimeoutMs;
+        }
+
+        public void setFanOutTimeoutMs(long fanOutTimeoutMs) {
+            this.fanOutTimeoutMs = fanOutTimeoutMs;
+        }
+
+        public long getTimerTickMs() {
+            return timerTickMs;
+        }
+
+        public void setTimerTickMs(long timerTickMs) {
+            this.timerTickMs = timerTickMs;
+        }
+
+        public int getTimerWheelSize() {
+            return timerWheelSize;
+        }
+
+        public void setTimerWheelSize(int timerWheelSize) {
+            this.timerWheelSize = timerWheelSize;
+        }
+    }
+
+    public static class Execution {
+
+        public enum Mode {
+            PLATFORM,
+            // Requires a Java 21 runtime (build with -Pjava21), falls back to PLATFORM otherwise
+            VIRTUAL
+        }
+
+        private Mode mode = Mode.PLATFORM;
+
+        // Upper bound on concurrent blocking device conversations in PLATFORM mode
+        private int platformThreads = 32;
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public int getPlatformThreads() {
+            return platformThreads;
+        }
+
+        public void setPlatformThreads(int platformThreads) {
+            this.platformThreads = platformThreads;
+        }
+    }
+
+    public static class Ingestion {
+        // Readings buffered in memory while waiting for the next batch insert
+        private int queueCapacity = 10000;
+
+        private int batchSize = 500;
+
+        // A partial batch is flushed once its oldest reading has waited this long
+        private long flushIntervalMs = 1000;
+
+        // How long a producer blocks on a full queue before the oldest reading is dropped
+        private long offerTimeoutMs = 200;
+
+        // Inserts failing on a connection or lock problem are retried, then the batch goes back on the queue
+        private int maxFlushAttempts = 3;
+
+        // Grows linearly with the attempt number
+        private long flushRetryBackoffMs = 1000;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public long getOfferTimeoutMs() {
+            return offerTimeoutMs;
+        }
+
+        public void setOfferTimeoutMs(long offerTimeoutMs) {
+            this.offerTimeoutMs = offerTimeoutMs;
+        }
+
+        public int getMaxFlushAttempts() {
+            return maxFlushAttempts;
+        }
+
+        public void setMaxFlushAttempts(int maxFlushAttempts) {
+            this.maxFlushAttempts = maxFlushAttempts;
+        }
+
+        public long getFlushRetryBackoffMs() {
+            return flushRetryBackoffMs;
+        }
+
+        public void setFlushRetryBackoffMs(long flushRetryBackoffMs) {
+            this.flushRetryBackoffMs = flushRetryBackoffMs;
+        }
+    }
+
+    public static class Timer {
+        // Resolution of the shared scheduler; poll ticks and valve timers are far coarser than this
+        private long tickMs = 100;
+
+        // Timers further out than tickMs * wheelSize simply wait a few extra rounds
+        private int wheelSize = 4096;
+
+        public long getTickMs() {
+            return tickMs;
+        }
+
+        public void setTickMs(long tickMs) {
+            this.tickMs = tickMs;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+    }
+
+    public static class Adaptive {
+        // When enabled, a device's FetchInterval is only its starting point
+        private boolean enabled = false;
+
+        private FetchInterval minInterval = FetchInterval.ONE_MINUTE;
+
+        private FetchInterval maxInterval = FetchInterval.ONE_HOUR;
+
+        // Variance is measured over this many polls at the device's current interval
+        private int windowPolls = 6;
+
+        // Relative standard deviation (stddev / |mean|) below which the interval is widened
+        private double widenBelow = 0.005;
+
+        // Relative standard deviation above which the interval is narrowed
+        private double narrowAbove = 0.02;
+
+        // Fields stay on minInterval for this long after the valves close, while water soaks in
+        private long irrigationSettleMs = 30 * 60 * 1000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public FetchInterval getMinInterval() {
+            return minInterval;
+        }
+
+        public void setMinInterval(FetchInterval minInterval) {
+            this.minInterval = minInterval;
+        }
+
+        public FetchInterval getMaxInterval() {
+            return maxInterval;
+        }
+
+        public void setMaxInterval(FetchInterval maxInterval) {
+            this.maxInterval = maxInterval;
+        }
+
+        public int getWindowPolls() {
+            return windowPolls;
+        }
+
+        public void setWindowPolls(int windowPolls) {
+            this.windowPolls = windowPolls;
+        }
+
+        public double getWidenBelow() {
+            return widenBelow;
+        }
+
+        public void setWidenBelow(double widenBelow) {
+            this.widenBelow = widenBelow;
+        }
+
+        public double getNarrowAbove() {
+            return narrowAbove;
+        }
+
+        public void setNarrowAbove(double narrowAbove) {
+            this.narrowAbove = narrowAbove;
+        }
+
+        public long getIrrigationSettleMs() {
+            return irrigationSettleMs;
+        }
+
+        public void setIrrigationSettleMs(long irrigationSettleMs) {
+            this.irrigationSettleMs = irrigationSettleMs;
+        }
+    }
+
+    public static class Health {
+        // Status transitions are collected and written together at this interval
+        private long flushIntervalMs = 2000;
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+    }
+
+    public static class Breaker {
+        private boolean enabled = true;
+
+        // Consecutive connect or read failures that open a device's circuit
+        private int failureThreshold = 3;
+
+        // First open period; doubled after every failed half-open probe up to maxBackoffMs
+        private long initialBackoffMs = 30 * 1000L;
+
+        private long maxBackoffMs = 30 * 60 * 1000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public long getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+
+        public void setInitialBackoffMs(long initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+    }
+
+    public static class Actuation {
+        // Deadline of one valve command attempt
+        private long commandTimeoutMs = 3000;
+
+        // Attempts per valve before the batch is given up and compensated
+        private int maxAttempts = 3;
+
+        // Delay before a retry, multiplied by the attempt number
+        private long retryBackoffMs = 500;
+
+        public long getCommandTimeoutMs() {
+            return commandTimeoutMs;
+        }
+
+        public void setCommandTimeoutMs(long commandTimeoutMs) {
+            this.commandTimeoutMs = commandTimeoutMs;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+    }
+
+    public static class Join {
+        // A device that connects but never sends its join line is dropped after this
+        private int readTimeoutMs = 5000;
+
+        // Pause before the join accept or refuse reply is written; 0 disables it
+        private long replyDelayMs = 1000;
+
+        public int getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        public void setReadTimeoutMs(int readTimeoutMs) {
+            this.readTimeoutMs = readTimeoutMs;
+        }
+
+        public long getReplyDelayMs() {
+            return replyDelayMs;
+        }
+
+        public void setReplyDelayMs(long replyDelayMs) {
+            this.replyDelayMs = replyDelayMs;
+        }
+    }
+
+    public static class Recent {
+        // Readings kept per field or device and data type; 4096 covers ~48 h at a one-minute poll
+        private int readingsPerSeries = 4096;
+
+        // Total memory for all series; least recently used series are evicted beyond this
+        private long maxMemoryBytes = 64L * 1024 * 1024;
+
+        public int getReadingsPerSeries() {
+            return readingsPerSeries;
+        }
+
+        public void setReadingsPerSeries(int readingsPerSeries) {
+            this.readingsPerSeries = readingsPerSeries;
+        }
+
+        public long getMaxMemoryBytes() {
+            return maxMemoryBytes;
+        }
+
+        public void setMaxMemoryBytes(long maxMemoryBytes) {
+            this.maxMemoryBytes = maxMemoryBytes;
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Poll getPoll() {
+        return poll;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public Ingestion getIngestion() {
+        return ingestion;
+    }
+
+    public Recent getRecent() {
+        return recent;
+    }
+
+    public Timer getTimer() {
+        return timer;
+    }
+
+    public Adaptive getAdaptive() {
+        return adaptive;
+    }
+
+    public Health getHealth() {
+        return health;
+    }
+
+    public Breaker getBreaker() {
+        return breaker;
+    }
+
+    public Actuation getActuation() {
+        return actuation;
+    }
+
+    public Join getJoin() {
+        return join;
+    }
+}
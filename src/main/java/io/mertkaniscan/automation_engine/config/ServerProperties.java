@@ -9,6 +9,8 @@ public class ServerProperties {
 
     private Join join = new Join();
 
+    private Push push = new Push();
+
     public static class Join {
         private int port;
 
@@ -21,7 +23,44 @@ public class ServerProperties {
         }
     }
 
+    public static class Push {
+        private boolean enabled = true;
+
+        private int port = 5001;
+
+        // Streams silent for longer than this are closed and the device falls back to being polled
+        private long idleTimeoutMs = 10 * 60 * 1000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public long getIdleTimeoutMs() {
+            return idleTimeoutMs;
+        }
+
+        public void setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+    }
+
     public Join getJoin() {
         return join;
     }
+
+    public Push getPush() {
+        return push;
+    }
 }
@@ -2,7 +2,9 @@ package io.mertkaniscan.automation_engine.controllers.api;
 
 
 import io.mertkaniscan.automation_engine.components.FetchInterval;
+import io.mertkaniscan.automation_engine.components.PollScheduler;
 import io.mertkaniscan.automation_engine.components.ScheduledSensorDataFetcher;
+import io.mertkaniscan.automation_engine.services.device_services.DeviceCircuitBreaker;
 import io.mertkaniscan.automation_engine.services.device_services.DeviceJoinService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -27,6 +29,9 @@ public class DeviceApiController {
     @Autowired
     private ScheduledSensorDataFetcher scheduledSensorDataFetcher;
 
+    @Autowired
+    private DeviceCircuitBreaker deviceCircuitBreaker;
+
 
     @PostMapping("/{deviceID}/join-request")
     public ResponseEntity<String> handleJoinRequest(
@@ -56,6 +61,36 @@ public class DeviceApiController {
         return ResponseEntity.ok(devices);
     }
 
+    // How many polls start in each second of the schedule period, to check that cohorts are spread out
+    @GetMapping("/poll-load")
+    public ResponseEntity<PollScheduler.LoadHistogram> getPollLoadHistogram() {
+        return ResponseEntity.ok(scheduledSensorDataFetcher.getPollLoadHistogram());
+    }
+
+    // Devices currently failing fast because their circuit is open or half-open
+    @GetMapping("/circuit-breakers")
+    public ResponseEntity<List<DeviceCircuitBreaker.Snapshot>> getTrippedCircuits() {
+        return ResponseEntity.ok(deviceCircuitBreaker.getTrippedCircuits());
+    }
+
+    @GetMapping("/{id}/circuit-breaker")
+    public ResponseEntity<DeviceCircuitBreaker.Snapshot> getCircuitBreaker(@PathVariable int id) {
+        if (deviceService.getDeviceById(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(deviceCircuitBreaker.getSnapshot(id));
+    }
+
+    // Lets the next poll through right away, e.g. after a device was repaired
+    @PostMapping("/{id}/circuit-breaker/reset")
+    public ResponseEntity<DeviceCircuitBreaker.Snapshot> resetCircuitBreaker(@PathVariable int id) {
+        if (deviceService.getDeviceById(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        deviceCircuitBreaker.reset(id);
+        return ResponseEntity.ok(deviceCircuitBreaker.getSnapshot(id));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Device> getDeviceById(@PathVariable int id) {
         Device device = deviceService.getDeviceById(id);
@@ -85,9 +120,9 @@ public class DeviceApiController {
         try {
             FetchInterval newInterval = FetchInterval.valueOf(interval);
 
-            deviceService.updateDeviceFetchInterval(deviceID, newInterval);
-
-            scheduledSensorDataFetcher.rescheduleDeviceTask(deviceID, newInterval);
+            if (!scheduledSensorDataFetcher.rescheduleDeviceTask(deviceID, newInterval)) {
+                return ResponseEntity.notFound().build();
+            }
 
             return ResponseEntity.ok("Interval updated successfully.");
 
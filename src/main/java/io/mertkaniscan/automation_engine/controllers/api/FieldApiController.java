@@ -1,8 +1,10 @@
 package io.mertkaniscan.automation_engine.controllers.api;
 
 import io.mertkaniscan.automation_engine.models.*;
+import io.mertkaniscan.automation_engine.services.device_services.DeviceReadingDTO;
 import io.mertkaniscan.automation_engine.services.device_services.SensorDataDTO;
 import io.mertkaniscan.automation_engine.services.irrigation_services.IrrigationService;
+import io.mertkaniscan.automation_engine.services.logic.WaterBalanceService;
 import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
 import io.mertkaniscan.automation_engine.services.weather_forecast_services.SolarResponse;
 import io.mertkaniscan.automation_engine.services.weather_forecast_services.weather_response_obj.WeatherResponse;
@@ -32,6 +34,9 @@ public class FieldApiController {
     @Autowired
     private IrrigationService irrigationService;
 
+    @Autowired
+    private WaterBalanceService waterBalanceService;
+
     @PostMapping("/add")
     public ResponseEntity<Field> createField(@RequestBody Field field) {
         Field savedField = fieldService.saveField(field);
@@ -108,6 +113,34 @@ public class FieldApiController {
         }
     }
 
+    // Live readings of all sensors in the field with a per-device status; maxAgeMs lets fresh polled values stand in
+    @GetMapping("/{fieldId}/sensor-readings")
+    public ResponseEntity<List<DeviceReadingDTO>> readFieldSensors(
+            @PathVariable int fieldId,
+            @RequestParam(required = false) String sensorModel,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(defaultValue = "0") long maxAgeMs) {
+
+        if (fieldService.getFieldById(fieldId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(fieldService.readFieldSensors(fieldId, sensorModel, timeoutMs, maxAgeMs));
+    }
+
+    // Current root zone and surface layer depletion of the field, in mm
+    @GetMapping("/{fieldId}/water-balance")
+    public ResponseEntity<WaterBalanceService.Snapshot> getWaterBalance(@PathVariable int fieldId) {
+        if (fieldService.getFieldById(fieldId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(waterBalanceService.getSnapshot(fieldId));
+    }
+
+    @GetMapping("/water-balance/due")
+    public ResponseEntity<List<WaterBalanceService.Snapshot>> getFieldsDueForIrrigation() {
+        return ResponseEntity.ok(waterBalanceService.getFieldsDueForIrrigation());
+    }
+
     @PostMapping("/{fieldID}/control-actuator")
     public ResponseEntity<String> controlActuator(
             @PathVariable int fieldID,
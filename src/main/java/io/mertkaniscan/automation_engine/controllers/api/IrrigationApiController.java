@@ -2,12 +2,15 @@ package io.mertkaniscan.automation_engine.controllers.api;
 
 import io.mertkaniscan.automation_engine.models.Field;
 import io.mertkaniscan.automation_engine.models.IrrigationRequest;
+import io.mertkaniscan.automation_engine.services.irrigation_services.IrrigationDispatcher;
 import io.mertkaniscan.automation_engine.services.irrigation_services.IrrigationService;
 import io.mertkaniscan.automation_engine.services.main_services.FieldService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @RestController
@@ -20,6 +23,9 @@ public class IrrigationApiController {
     @Autowired
     private FieldService fieldService;
 
+    @Autowired
+    private IrrigationDispatcher irrigationDispatcher;
+
     @PostMapping("/{fieldId}/schedule")
     public ResponseEntity<String> scheduleIrrigation(@PathVariable int fieldId, @RequestBody IrrigationRequest request) {
         try {
@@ -78,10 +84,46 @@ public class IrrigationApiController {
             if (request == null) {
                 return ResponseEntity.badRequest().body("Irrigation request not found.");
             }
-            irrigationService.startIrrigation(request);
+            IrrigationDispatcher.Batch batch = irrigationService.startIrrigation(request).join();
+            if (batch.getState() != IrrigationDispatcher.BatchState.OPEN) {
+                return ResponseEntity.badRequest().body("Error starting irrigation: not every valve opened, the field's valves were closed again.");
+            }
             return ResponseEntity.ok("Irrigation started immediately.");
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error starting irrigation: " + e.getMessage());
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return ResponseEntity.badRequest().body("Error starting irrigation: " + cause.getMessage());
+        }
+    }
+
+    // Starts several requests, across fields, as one all-or-nothing batch
+    @PostMapping("/start-now/batch")
+    public ResponseEntity<?> startIrrigationBatchNow(@RequestBody List<Integer> ids) {
+        try {
+            List<IrrigationRequest> requests = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                IrrigationRequest request = irrigationService.getIrrigationRequestById(id);
+                if (request == null) {
+                    return ResponseEntity.badRequest().body("Irrigation request not found: " + id);
+                }
+                requests.add(request);
+            }
+            return ResponseEntity.ok(irrigationService.startIrrigation(requests).join());
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return ResponseEntity.badRequest().body("Error starting irrigation: " + cause.getMessage());
+        }
+    }
+
+    @GetMapping("/batches")
+    public ResponseEntity<Collection<IrrigationDispatcher.Batch>> getActiveBatches() {
+        return ResponseEntity.ok(irrigationDispatcher.getActiveBatches());
+    }
+
+    @PostMapping("/batches/{batchId}/stop")
+    public ResponseEntity<String> stopBatch(@PathVariable int batchId) {
+        if (!irrigationDispatcher.stop(batchId)) {
+            return ResponseEntity.badRequest().body("No open irrigation batch with ID: " + batchId);
         }
+        return ResponseEntity.ok("Closing valves of batch " + batchId + ".");
     }
 }
@@ -1,27 +1,91 @@
 package io.mertkaniscan.automation_engine.controllers.api;
 
 import io.mertkaniscan.automation_engine.models.SensorData;
+import io.mertkaniscan.automation_engine.models.SensorDataPoint;
+import io.mertkaniscan.automation_engine.models.SensorDataRollup;
+import io.mertkaniscan.automation_engine.services.main_services.RecentReadingsService;
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataExportService;
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataGraphService;
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataRollupService;
 import io.mertkaniscan.automation_engine.services.main_services.SensorDataService;
+import io.mertkaniscan.automation_engine.utils.LttbDownsampler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/sensor-data")
 public class SensorDataApiController {
 
+    private static final int MAX_PAGE_SIZE = 10000;
+    // Longest window /recent serves; longer ranges belong to /graph and the rollups
+    private static final int MAX_RECENT_HOURS = 7 * 24;
+
     @Autowired
     private SensorDataService sensorDataService;
 
+    @Autowired
+    private SensorDataExportService sensorDataExportService;
+
+    @Autowired
+    private SensorDataRollupService sensorDataRollupService;
+
+    @Autowired
+    private SensorDataGraphService sensorDataGraphService;
+
+    @Autowired
+    private RecentReadingsService recentReadingsService;
+
     @GetMapping
     public ResponseEntity<List<SensorData>> getAllSensorData() {
         List<SensorData> data = sensorDataService.getAllSensorData();
         return ResponseEntity.ok(data);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<List<SensorData>> getSensorDataPage(
+            @RequestParam(defaultValue = "0") int afterID,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(sensorDataService.getSensorDataPage(afterID, limit));
+    }
+
+    // Streams every reading as NDJSON (default) or CSV without loading the table into memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSensorData(@RequestParam(defaultValue = "ndjson") String format) {
+        SensorDataExportService.Format exportFormat;
+        MediaType mediaType;
+
+        switch (format.toLowerCase()) {
+            case "ndjson":
+                exportFormat = SensorDataExportService.Format.NDJSON;
+                mediaType = MediaType.parseMediaType("application/x-ndjson");
+                break;
+            case "csv":
+                exportFormat = SensorDataExportService.Format.CSV;
+                mediaType = MediaType.parseMediaType("text/csv");
+                break;
+            default:
+                return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> sensorDataExportService.export(exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sensor-data." + format.toLowerCase() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SensorData> getSensorDataById(@PathVariable int id) {
         SensorData sensorData = sensorDataService.getSensorDataById(id);
@@ -41,34 +105,34 @@ public class SensorDataApiController {
     }
 
     @GetMapping("/{fieldID}/{dataType}")
-    public ResponseEntity<List<SensorData>> getSensorDataByFieldIDAndTypeFromDb(
+    public ResponseEntity<List<SensorDataPoint>> getSensorDataByFieldIDAndTypeFromDb(
             @PathVariable int fieldID,
             @PathVariable String dataType,
             @RequestParam(required = false) String timeRange) {
 
-        List<SensorData> data;
+        List<SensorDataPoint> data;
 
-        // Determine the time range filter
+        // Determine the time range filter, ranges are served from rollups at a matching resolution
         if (timeRange != null) {
             switch (timeRange.toLowerCase()) {
                 case "day":
-                    data = sensorDataService.getSensorDataByFieldIDAndTypeWithinLastDaysFromDb(fieldID, dataType, 1);
+                    data = sensorDataRollupService.getAveragedPointsWithinLastDays(fieldID, dataType, 1);
                     break;
                 case "week":
-                    data = sensorDataService.getSensorDataByFieldIDAndTypeWithinLastDaysFromDb(fieldID, dataType, 7);
+                    data = sensorDataRollupService.getAveragedPointsWithinLastDays(fieldID, dataType, 7);
                     break;
                 case "month":
-                    data = sensorDataService.getSensorDataByFieldIDAndTypeWithinLastDaysFromDb(fieldID, dataType, 30);
+                    data = sensorDataRollupService.getAveragedPointsWithinLastDays(fieldID, dataType, 30);
                     break;
                 case "year":
-                    data = sensorDataService.getSensorDataByFieldIDAndTypeWithinLastDaysFromDb(fieldID, dataType, 365);
+                    data = sensorDataRollupService.getAveragedPointsWithinLastDays(fieldID, dataType, 365);
                     break;
                 default:
-                    data = sensorDataService.getSensorDataByFieldIDAndTypeFromDb(fieldID, dataType);
+                    data = sensorDataService.getSensorDataPointsByFieldIDAndType(fieldID, dataType);
             }
         } else {
             // Default behavior if no time range is specified
-            data = sensorDataService.getSensorDataByFieldIDAndTypeFromDb(fieldID, dataType);
+            data = sensorDataService.getSensorDataPointsByFieldIDAndType(fieldID, dataType);
         }
 
         if (data != null && !data.isEmpty()) {
@@ -77,4 +141,75 @@ public class SensorDataApiController {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{fieldID}/{dataType}/rollups")
+    public ResponseEntity<List<SensorDataRollup>> getSensorDataRollups(
+            @PathVariable int fieldID,
+            @PathVariable String dataType,
+            @RequestParam(defaultValue = "day") String timeRange) {
+
+        Integer days = daysForTimeRange(timeRange);
+        if (days == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<SensorDataRollup> rollups = sensorDataRollupService.getRollupsWithinLastDays(fieldID, dataType, days);
+        return rollups.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(rollups);
+    }
+
+    // LTTB-downsampled series with at most one point per pixel of the target chart width
+    @GetMapping("/{fieldID}/{dataType}/graph")
+    public ResponseEntity<LttbDownsampler.Series> getSensorDataGraph(
+            @PathVariable int fieldID,
+            @PathVariable String dataType,
+            @RequestParam(defaultValue = "800") int width,
+            @RequestParam(defaultValue = "week") String timeRange) {
+
+        Integer days = daysForTimeRange(timeRange);
+        if (days == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        Timestamp since = new Timestamp(System.currentTimeMillis() - (days * 24 * 60 * 60 * 1000L));
+
+        return ResponseEntity.ok(sensorDataGraphService.getDownsampledSeries(fieldID, dataType, since, width));
+    }
+
+    // Recent window served from the in-memory ring buffers, falling back to the database after a restart or eviction
+    @GetMapping("/{fieldID}/{dataType}/recent")
+    public ResponseEntity<LttbDownsampler.Series> getRecentSensorData(
+            @PathVariable int fieldID,
+            @PathVariable String dataType,
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "800") int width) {
+
+        if (hours < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        hours = Math.min(hours, MAX_RECENT_HOURS);
+
+        long sinceMs = System.currentTimeMillis() - hours * 60 * 60 * 1000L;
+        LttbDownsampler.Series series = recentReadingsService.getSeriesSince(fieldID, dataType, sinceMs);
+
+        if (series == null) {
+            // Not held in memory: read the window from the database bounded and downsampled, never row by row
+            series = sensorDataGraphService.getDownsampledSeries(fieldID, dataType, new Timestamp(sinceMs), width);
+        }
+
+        return ResponseEntity.ok(series);
+    }
+
+    private static Integer daysForTimeRange(String timeRange) {
+        switch (timeRange.toLowerCase()) {
+            case "day":
+                return 1;
+            case "week":
+                return 7;
+            case "month":
+                return 30;
+            case "year":
+                return 365;
+            default:
+                return null;
+        }
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Comparator;
 import java.util.List;
 
 @Controller
@@ -33,12 +32,7 @@ public class SensorDataViewController {
 
     @GetMapping("/graph")
     public String getGraphByFieldIDAndType(@RequestParam int fieldID, @RequestParam String dataType, Model model) {
-        List<SensorData> data = sensorDataService.getSensorDataByFieldIDAndTypeFromDb(fieldID, dataType);
-
-        // Sort data by timestamp
-        data.sort(Comparator.comparing(SensorData::getTimestamp));
-
-        model.addAttribute("sensorDataList", data);
+        // Points are loaded by the page from the downsampled graph API
         model.addAttribute("fieldID", fieldID);
         model.addAttribute("dataType", dataType);
         return "sensor_data_graph";
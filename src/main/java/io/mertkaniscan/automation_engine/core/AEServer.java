@@ -2,6 +2,7 @@ package io.mertkaniscan.automation_engine.core;
 
 import io.mertkaniscan.automation_engine.config.ServerProperties;
 import io.mertkaniscan.automation_engine.services.device_services.DeviceJoinService;
+import io.mertkaniscan.automation_engine.services.device_services.DevicePushServer;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -9,10 +10,12 @@ import org.springframework.stereotype.Component;
 public class AEServer implements CommandLineRunner {
 
     private final DeviceJoinService deviceJoinService;
+    private final DevicePushServer devicePushServer;
     private final ServerProperties serverProperties;
 
-    public AEServer(DeviceJoinService deviceJoinService, ServerProperties serverProperties) {
+    public AEServer(DeviceJoinService deviceJoinService, DevicePushServer devicePushServer, ServerProperties serverProperties) {
         this.deviceJoinService = deviceJoinService;
+        this.devicePushServer = devicePushServer;
         this.serverProperties = serverProperties;
     }
 
@@ -24,5 +27,10 @@ public class AEServer implements CommandLineRunner {
         // Start client join server thread
         new Thread(() -> deviceJoinService.startJoinServer(joinPort)).start();
 
+        // Start push ingestion server, devices that never connect to it keep being polled
+        if (serverProperties.getPush().isEnabled()) {
+            devicePushServer.startPushServer(serverProperties.getPush().getPort());
+        }
+
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package io.mertkaniscan.automation_engine.core;
 
 
 import io.mertkaniscan.automation_engine.components.ScheduledSensorDataFetcher;
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
@@ -13,9 +14,14 @@ public class ApplicationStartupRunner implements ApplicationRunner {
     @Autowired
     ScheduledSensorDataFetcher scheduledSensorDataFetcher;
 
+    @Autowired
+    SensorDataRollupService sensorDataRollupService;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
+        // Readings ingested since startup are rolled up live; older history is backfilled and resumed if interrupted
+        new Thread(sensorDataRollupService::backfill, "sensor-rollup-backfill").start();
+
         scheduledSensorDataFetcher.initializeDeviceTasks();
     }
 }
\ No newline at end of file
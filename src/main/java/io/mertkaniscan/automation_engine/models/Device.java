@@ -3,8 +3,10 @@ package io.mertkaniscan.automation_engine.models;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.mertkaniscan.automation_engine.components.FetchInterval;
+import io.mertkaniscan.automation_engine.utils.CalibrationCurve;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 
@@ -13,13 +15,14 @@ import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.Map;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 @Entity
 @Table(name = "devices", uniqueConstraints = @UniqueConstraint(columnNames = "device_ip"))
 public class Device {
 
+    // ObjectMapper is thread-safe once configured, one instance serves every device
+    private static final ObjectMapper CALIBRATION_MAPPER = new ObjectMapper();
+
     public enum DeviceStatus {
         WAITING,
         ACTIVE,
@@ -29,6 +32,12 @@ public class Device {
         ERROR,
     }
 
+    // Reply format negotiated during the join handshake
+    public enum TelemetryProtocol {
+        JSON,
+        BINARY_V1
+    }
+
     @Id
     private int deviceID;
 
@@ -49,10 +58,21 @@ public class Device {
     @Column(name = "fetch_interval")
     private FetchInterval fetchInterval = FetchInterval.ONE_MINUTE;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "telemetry_protocol")
+    private TelemetryProtocol telemetryProtocol = TelemetryProtocol.JSON;
+
     @Lob
     @Column(columnDefinition = "TEXT")
     private String calibrationData;
 
+    // Parsed from calibrationData on first use and rebuilt only when that string is replaced
+    @Transient
+    private volatile CalibrationCurve calibrationCurve;
+
+    @Transient
+    private volatile String calibrationCurveSource;
+
     @ManyToOne
     @JoinColumn(name = "fieldID", nullable = false)
     @JsonBackReference
@@ -65,9 +85,6 @@ public class Device {
     @Column(nullable = false)
     private Timestamp updatedAt;
 
-    @Transient
-    private final Lock lock = new ReentrantLock();
-
     public Device() {
         // No-argument constructor for JPA
     }
@@ -163,6 +180,15 @@ public class Device {
         return this.deviceType.equalsIgnoreCase("actuator");
     }
 
+    public TelemetryProtocol getTelemetryProtocol() {
+        // Rows created before the column existed read back as null
+        return telemetryProtocol != null ? telemetryProtocol : TelemetryProtocol.JSON;
+    }
+
+    public void setTelemetryProtocol(TelemetryProtocol telemetryProtocol) {
+        this.telemetryProtocol = telemetryProtocol;
+    }
+
     public String getCalibrationData() {
         return calibrationData;
     }
@@ -177,8 +203,7 @@ public class Device {
             return new HashMap<>();
         }
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(calibrationData, new TypeReference<Map<Double, Integer>>() {});
+            return CALIBRATION_MAPPER.readValue(calibrationData, new TypeReference<Map<Double, Integer>>() {});
         } catch (IOException e) {
             throw new RuntimeException("Failed to parse calibration data for device ID " + this.deviceID, e);
         }
@@ -187,22 +212,25 @@ public class Device {
     @Transient
     public void setCalibrationMap(Map<Double, Integer> calibrationMap) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            this.calibrationData = objectMapper.writeValueAsString(calibrationMap);
+            this.calibrationData = CALIBRATION_MAPPER.writeValueAsString(calibrationMap);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Failed to serialize calibration data for device ID " + this.deviceID, e);
         }
     }
 
-    public Lock getLock() {
-        return lock;
-    }
-
-    public void lock() {
-        lock.lock();
-    }
-
-    public void unlock() {
-        lock.unlock();
+    // Interpolating flow/degree lookup; hot paths use this instead of parsing getCalibrationMap()
+    @JsonIgnore
+    @Transient
+    public CalibrationCurve getCalibrationCurve() {
+        String source = calibrationData;
+        CalibrationCurve curve = calibrationCurve;
+
+        // Hibernate writes the field directly, so the source string is compared rather than relying on the setter
+        if (curve == null || source != calibrationCurveSource) {
+            curve = (source == null || source.isEmpty()) ? CalibrationCurve.empty() : CalibrationCurve.of(getCalibrationMap());
+            calibrationCurve = curve;
+            calibrationCurveSource = source;
+        }
+        return curve;
     }
 }
@@ -2,10 +2,9 @@ package io.mertkaniscan.automation_engine.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.Objects;
 
@@ -22,10 +21,10 @@ public class SensorData {
     @Size(min = 1, max = 255, message = "Data type must be between 1 and 255 characters")
     private String dataType;
 
+    // Readings are ADC counts or percentages with ~2 decimals, a double is exact enough and avoids a BigDecimal per value
     @Column(nullable = false)
-    @NotNull(message = "Data value cannot be null")
-    @Min(value = 0, message = "Data value must be non-negative")
-    private BigDecimal dataValue;
+    @PositiveOrZero(message = "Data value must be non-negative")
+    private double dataValue;
 
     @Column(nullable = false, updatable = false)
     private Timestamp timestamp;
@@ -44,7 +43,7 @@ public class SensorData {
         // No-argument constructor for JPA
     }
 
-    public SensorData(String dataType, BigDecimal dataValue, Timestamp timestamp, Device device) {
+    public SensorData(String dataType, double dataValue, Timestamp timestamp, Device device) {
         this.dataType = dataType;
         this.dataValue = dataValue;
         this.timestamp = timestamp;
@@ -69,11 +68,11 @@ public class SensorData {
         this.dataType = dataType;
     }
 
-    public BigDecimal getDataValue() {
+    public double getDataValue() {
         return dataValue;
     }
 
-    public void setDataValue(BigDecimal dataValue) {
+    public void setDataValue(double dataValue) {
         this.dataValue = dataValue;
     }
 
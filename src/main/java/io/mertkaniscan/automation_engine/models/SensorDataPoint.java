@@ -0,0 +1,7 @@
+package io.mertkaniscan.automation_engine.models;
+
+import java.sql.Timestamp;
+
+// Read-only projection of a reading, loaded without the Device and Field associations
+public record SensorDataPoint(Timestamp timestamp, String dataType, double dataValue) {
+}
@@ -0,0 +1,118 @@
+package io.mertkaniscan.automation_engine.models;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+
+// Aggregated readings of one data type on one field over a fixed time bucket
+@Entity
+@Table(name = "sensor_data_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"field_id", "data_type", "resolution", "bucket_start"}),
+        indexes = @Index(columnList = "field_id, data_type, resolution, bucket_start"))
+public class SensorDataRollup {
+
+    public enum Resolution {
+        FIVE_MINUTES(5 * 60 * 1000L),
+        HOUR(60 * 60 * 1000L),
+        DAY(24 * 60 * 60 * 1000L);
+
+        private final long durationMs;
+
+        Resolution(long durationMs) {
+            this.durationMs = durationMs;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        // Buckets are aligned to the epoch, so DAY buckets start at midnight UTC
+        public long bucketStart(long timestampMs) {
+            return Math.floorDiv(timestampMs, durationMs) * durationMs;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long rollupID;
+
+    @Column(name = "field_id", nullable = false)
+    private int fieldID;
+
+    @Column(name = "data_type", nullable = false)
+    private String dataType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false, length = 16)
+    private Resolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Timestamp bucketStart;
+
+    @Column(name = "min_value", nullable = false, precision = 19, scale = 4)
+    private BigDecimal minValue;
+
+    @Column(name = "max_value", nullable = false, precision = 19, scale = 4)
+    private BigDecimal maxValue;
+
+    @Column(name = "sum_value", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sumValue;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "last_value", nullable = false, precision = 19, scale = 4)
+    private BigDecimal lastValue;
+
+    @Column(name = "last_timestamp", nullable = false)
+    private Timestamp lastTimestamp;
+
+    public SensorDataRollup() {
+        // No-argument constructor for JPA
+    }
+
+    public long getRollupID() {
+        return rollupID;
+    }
+
+    public int getFieldID() {
+        return fieldID;
+    }
+
+    public String getDataType() {
+        return dataType;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public Timestamp getBucketStart() {
+        return bucketStart;
+    }
+
+    public BigDecimal getMinValue() {
+        return minValue;
+    }
+
+    public BigDecimal getMaxValue() {
+        return maxValue;
+    }
+
+    public BigDecimal getAvgValue() {
+        return sampleCount == 0 ? null : sumValue.divide(BigDecimal.valueOf(sampleCount), 4, RoundingMode.HALF_UP);
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public BigDecimal getLastValue() {
+        return lastValue;
+    }
+
+    public Timestamp getLastTimestamp() {
+        return lastTimestamp;
+    }
+}
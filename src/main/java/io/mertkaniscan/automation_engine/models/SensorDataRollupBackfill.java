@@ -0,0 +1,62 @@
+package io.mertkaniscan.automation_engine.models;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+// Progress of building rollups from raw readings that were stored before rollups were maintained
+@Entity
+@Table(name = "sensor_data_rollup_backfill")
+public class SensorDataRollupBackfill {
+
+    // There is only one backfill, kept as a single row
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "backfill_id")
+    private int backfillID;
+
+    // Readings from here on are rolled up as they are ingested, so the backfill stops here
+    @Column(name = "cutoff", nullable = false)
+    private Timestamp cutoff;
+
+    // Every raw reading before this has been folded into the rollups
+    @Column(name = "watermark", nullable = false)
+    private Timestamp watermark;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    public SensorDataRollupBackfill() {
+        // No-argument constructor for JPA
+    }
+
+    public SensorDataRollupBackfill(Timestamp cutoff) {
+        this.backfillID = ID;
+        this.cutoff = cutoff;
+        this.watermark = new Timestamp(0);
+    }
+
+    public int getBackfillID() {
+        return backfillID;
+    }
+
+    public Timestamp getCutoff() {
+        return cutoff;
+    }
+
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(Timestamp watermark) {
+        this.watermark = watermark;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
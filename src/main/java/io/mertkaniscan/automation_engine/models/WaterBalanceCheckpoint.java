@@ -0,0 +1,59 @@
+package io.mertkaniscan.automation_engine.models;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+// Last persisted root zone and evaporative layer depletion of one field, in mm
+@Entity
+@Table(name = "water_balance_checkpoints")
+public class WaterBalanceCheckpoint {
+
+    @Id
+    @Column(name = "field_id")
+    private int fieldID;
+
+    @Column(name = "root_zone_depletion", nullable = false)
+    private double rootZoneDepletion;
+
+    @Column(name = "evaporative_depletion", nullable = false)
+    private double evaporativeDepletion;
+
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt;
+
+    // Number of events applied to the balance, checkpoints with the same sequence are not rewritten
+    @Column(name = "sequence", nullable = false)
+    private long sequence;
+
+    public WaterBalanceCheckpoint() {
+        // No-argument constructor for JPA
+    }
+
+    public WaterBalanceCheckpoint(int fieldID, double rootZoneDepletion, double evaporativeDepletion, Timestamp updatedAt, long sequence) {
+        this.fieldID = fieldID;
+        this.rootZoneDepletion = rootZoneDepletion;
+        this.evaporativeDepletion = evaporativeDepletion;
+        this.updatedAt = updatedAt;
+        this.sequence = sequence;
+    }
+
+    public int getFieldID() {
+        return fieldID;
+    }
+
+    public double getRootZoneDepletion() {
+        return rootZoneDepletion;
+    }
+
+    public double getEvaporativeDepletion() {
+        return evaporativeDepletion;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -2,9 +2,11 @@ package io.mertkaniscan.automation_engine.repositories;
 
 import io.mertkaniscan.automation_engine.models.Device;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +16,9 @@ public interface DeviceRepository extends JpaRepository<Device, Integer> {
 
     @Query("SELECT d FROM Device d WHERE d.field.fieldID = :fieldID AND d.deviceType = 'SOIL_SENSOR'")
     List<Device> findSoilSensorsByFieldId(@Param("fieldID") int fieldID);
+
+    // Bulk status write; bypasses @PreUpdate, so updatedAt is set here
+    @Modifying
+    @Query("UPDATE Device d SET d.deviceStatus = :status, d.updatedAt = CURRENT_TIMESTAMP WHERE d.deviceID IN :deviceIDs")
+    int updateStatusByDeviceIDs(@Param("status") Device.DeviceStatus status, @Param("deviceIDs") Collection<Integer> deviceIDs);
 }
@@ -1,20 +1,41 @@
 package io.mertkaniscan.automation_engine.repositories;
 
 import io.mertkaniscan.automation_engine.models.SensorData;
+import io.mertkaniscan.automation_engine.models.SensorDataPoint;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface SensorDataRepository extends JpaRepository<SensorData, Integer> {
 
-    @Query("SELECT sd FROM SensorData sd WHERE sd.field.fieldID = :fieldID AND sd.dataType = :dataType")
+    @Query("SELECT sd FROM SensorData sd WHERE sd.field.fieldID = :fieldID AND sd.dataType = :dataType ORDER BY sd.timestamp ASC")
     List<SensorData> findByFieldIDAndDataType(@Param("fieldID") int fieldID, @Param("dataType") String dataType);
 
     @Query("SELECT sd FROM SensorData sd WHERE sd.field.fieldID = :fieldID AND sd.dataType = :dataType AND sd.timestamp > :since ORDER BY sd.timestamp ASC")
     List<SensorData> findByFieldIdAndTypeAndTimestampAfter(@Param("fieldID") int fieldID, @Param("dataType") String dataType, @Param("since") Timestamp since);
-}
\ No newline at end of file
+
+    @Query("SELECT new io.mertkaniscan.automation_engine.models.SensorDataPoint(sd.timestamp, sd.dataType, sd.dataValue) FROM SensorData sd WHERE sd.field.fieldID = :fieldID AND sd.dataType = :dataType ORDER BY sd.timestamp ASC")
+    List<SensorDataPoint> findPointsByFieldIDAndDataType(@Param("fieldID") int fieldID, @Param("dataType") String dataType);
+
+    @Query("SELECT new io.mertkaniscan.automation_engine.models.SensorDataPoint(sd.timestamp, sd.dataType, sd.dataValue) FROM SensorData sd WHERE sd.field.fieldID = :fieldID AND sd.dataType = :dataType AND sd.timestamp > :since ORDER BY sd.timestamp ASC")
+    List<SensorDataPoint> findPointsByFieldIdAndTypeAndTimestampAfter(@Param("fieldID") int fieldID, @Param("dataType") String dataType, @Param("since") Timestamp since);
+
+    // Keyset page: rows strictly after the last ID the caller has seen
+    @Query("SELECT sd FROM SensorData sd WHERE sd.sensorDataID > :afterID ORDER BY sd.sensorDataID ASC")
+    List<SensorData> findPageAfterID(@Param("afterID") int afterID, Pageable pageable);
+
+    // Scalar rows only, so nothing is attached to the persistence context while streaming
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT sd.sensorDataID, sd.dataType, sd.dataValue, sd.timestamp, sd.device.deviceID, sd.field.fieldID FROM SensorData sd ORDER BY sd.sensorDataID ASC")
+    Stream<Object[]> streamAllForExport();
+}
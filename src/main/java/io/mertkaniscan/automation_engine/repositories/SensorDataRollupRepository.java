@@ -0,0 +1,18 @@
+package io.mertkaniscan.automation_engine.repositories;
+
+import io.mertkaniscan.automation_engine.models.SensorDataRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface SensorDataRollupRepository extends JpaRepository<SensorDataRollup, Long> {
+
+    @Query("SELECT r FROM SensorDataRollup r WHERE r.fieldID = :fieldID AND r.dataType = :dataType AND r.resolution = :resolution AND r.bucketStart >= :since ORDER BY r.bucketStart ASC")
+    List<SensorDataRollup> findByFieldIdAndTypeAndResolutionSince(@Param("fieldID") int fieldID, @Param("dataType") String dataType,
+                                                                  @Param("resolution") SensorDataRollup.Resolution resolution, @Param("since") Timestamp since);
+}
@@ -0,0 +1,9 @@
+package io.mertkaniscan.automation_engine.repositories;
+
+import io.mertkaniscan.automation_engine.models.WaterBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WaterBalanceCheckpointRepository extends JpaRepository<WaterBalanceCheckpoint, Integer> {
+}
@@ -2,28 +2,53 @@ package io.mertkaniscan.automation_engine.services;
 
 import io.mertkaniscan.automation_engine.components.config_loader.ConfigLoader;
 import io.mertkaniscan.automation_engine.components.config_loader.SensorConfig;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 public class SensorConfigService {
 
     private final ConfigLoader configLoader;
 
+    // Sensor configs by lower-cased type, looked up on every telemetry frame
+    private Map<String, SensorConfig> sensorConfigsByType = Map.of();
+
     // Inject ConfigLoader via constructor
     public SensorConfigService(ConfigLoader configLoader) {
         this.configLoader = configLoader;
     }
 
-    public List<String> getExpectedDataTypesForSensorType(String sensorType) {
-        // Retrieve the sensor configuration for the given sensorType
-        Optional<SensorConfig> sensorConfigOptional = configLoader.getSensorConfigs().stream()
-                .filter(sensor -> sensor.getType().equalsIgnoreCase(sensorType))
-                .findFirst();
+    @PostConstruct
+    public void indexSensorConfigs() {
+        Map<String, SensorConfig> index = new HashMap<>();
+        for (SensorConfig sensorConfig : configLoader.getSensorConfigs()) {
+            // The first entry of a type wins, as with the former linear scan
+            index.putIfAbsent(sensorConfig.getType().toLowerCase(Locale.ROOT), sensorConfig);
+        }
+        sensorConfigsByType = index;
+    }
 
+    public List<String> getExpectedDataTypesForSensorType(String sensorType) {
         // Return the expected data types if the configuration is found, otherwise return null
-        return sensorConfigOptional.map(SensorConfig::getExpectedDataTypes).orElse(null);
+        SensorConfig sensorConfig = findSensorConfig(sensorType);
+        return sensorConfig != null ? sensorConfig.getExpectedDataTypes() : null;
+    }
+
+    // Binary telemetry schema of a sensor type, or null when it only speaks JSON
+    public Integer getSchemaIdForSensorType(String sensorType) {
+        SensorConfig sensorConfig = findSensorConfig(sensorType);
+        return sensorConfig != null ? sensorConfig.getSchemaId() : null;
+    }
+
+    private SensorConfig findSensorConfig(String sensorType) {
+        if (sensorType == null) {
+            return null;
+        }
+        return sensorConfigsByType.get(sensorType.toLowerCase(Locale.ROOT));
     }
 }
@@ -5,6 +5,7 @@ import org.apache.logging.log4j.Logger;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
 import io.mertkaniscan.automation_engine.models.Device;
 import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
 import static io.mertkaniscan.automation_engine.utils.DeviceJsonMessageFactory.createValveActuatorCommand;
@@ -12,23 +13,28 @@ import static io.mertkaniscan.automation_engine.utils.DeviceJsonMessageFactory.c
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.*;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class ActuatorCommandSocketService {
 
     private static final Logger logger = LogManager.getLogger(ActuatorCommandSocketService.class);
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
 
     @Autowired
     private DeviceService deviceService;
 
+    @Autowired
+    private DevicePollEngine devicePollEngine;
+
+    @Autowired
+    private DeviceProperties deviceProperties;
+
+    @Autowired
+    private DeviceRuntimeRegistry deviceRuntimeRegistry;
+
     public String sendActuatorCommand(int deviceID, int degree) throws Exception {
         Device device = deviceService.getDeviceById(deviceID);
 
@@ -40,108 +46,75 @@ public class ActuatorCommandSocketService {
             throw new Exception("Device with ID " + deviceID + " is not an actuator device.");
         }
 
-        logger.info("Locking device with ID: {}", device.getDeviceID());
-        device.lock();
+        String responseJson = null;
+        Throwable failure = null;
         try {
-            return communicateWithActuator(device, degree);
-        } finally {
-            logger.info("Unlocking device with ID: {}", device.getDeviceID());
-            device.unlock();
+            responseJson = deviceRuntimeRegistry.await(requestCommand(device, degree), deviceProperties.getPoll().getRequestTimeoutMs());
+        } catch (Exception e) {
+            failure = e;
         }
-    }
-
-    private String communicateWithActuator(Device device, int degree) throws Exception {
-        String deviceIp = device.getDeviceIp();
 
-        Callable<String> sendCommandTask = () -> {
-            try (Socket socket = new Socket(deviceIp, 5000);
-                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-
-                // Create the actuator command JSON
-                String command = createValveActuatorCommand(degree);
-                out.println(command);
-
-                // Read response from the actuator
-                String responseJson = in.readLine();
+        return checkResponse(device, responseJson, failure);
+    }
 
-                if (responseJson == null || responseJson.isEmpty()) {
-                    throw new Exception("Empty response received from actuator with ID: " + device.getDeviceID());
-                }
+    // Non-blocking variant for batch actuation; one attempt, bounded by device.actuation.command-timeout-ms
+    public CompletableFuture<String> sendActuatorCommandAsync(int deviceID, int degree) {
+        Device device = deviceService.getDeviceById(deviceID);
 
-                // Validate the response
-                JsonObject response = JsonParser.parseString(responseJson).getAsJsonObject();
-                if (!"success".equalsIgnoreCase(response.get("messageType").getAsString())) {
-                    throw new Exception("Failed response from actuator: " + responseJson);
-                }
+        if (device == null) {
+            return CompletableFuture.failedFuture(new Exception("Device not found with ID: " + deviceID));
+        }
 
-                return responseJson;
+        if (!device.isActuator()) {
+            return CompletableFuture.failedFuture(new Exception("Device with ID " + deviceID + " is not an actuator device."));
+        }
 
+        return requestCommand(device, degree).handle((responseJson, throwable) -> {
+            try {
+                return checkResponse(device, responseJson, throwable);
             } catch (Exception e) {
-                logger.error("Error communicating with actuator ID {}: {}", device.getDeviceID(), e.getMessage());
-                throw new Exception("Error communicating with actuator ID " + device.getDeviceID() + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
-        };
+        });
+    }
 
-        Future<String> future = executorService.submit(sendCommandTask);
+    // Sent over the poll engine's channel to the device, in the device's turn
+    private CompletableFuture<String> requestCommand(Device device, int degree) {
+        String command = createValveActuatorCommand(degree);
+        long timeoutMs = deviceProperties.getActuation().getCommandTimeoutMs();
 
-        try {
-            return future.get(10, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            future.cancel(true); // Cancel the task if it times out
-            throw new Exception("Timeout: No response from actuator within 10 seconds. Device ID: " + device.getDeviceID());
-        }
+        return deviceRuntimeRegistry.submit(device.getDeviceID(), () -> devicePollEngine.submit(device.getDeviceIp(), command, timeoutMs));
     }
 
-    public void startIrrigation(int fieldId, double flowRate, int duration) throws Exception {
-        List<Device> actuators = deviceService.getDevicesByFieldID(fieldId).stream()
-                .filter(Device::isActuator)
-                .toList();
-
-        if (actuators.isEmpty()) {
-            throw new Exception("No actuators found for field ID: " + fieldId);
+    private String checkResponse(Device device, String responseJson, Throwable throwable) throws Exception {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
         }
 
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(actuators.size());
-
-        for (Device actuator : actuators) {
-            Map<Double, Integer> calibrationMap = actuator.getCalibrationMap();
-
-            if (calibrationMap == null || calibrationMap.isEmpty()) {
-                throw new Exception("Calibration map is missing or empty for actuator ID: " + actuator.getDeviceID());
-            }
-
-            // Find the corresponding degree for the requested flow rate
-            Integer degree = calibrationMap.get(flowRate);
-            if (degree == null) {
-                throw new Exception("Flow rate " + flowRate + " is not calibrated for actuator ID: " + actuator.getDeviceID());
-            }
+        if (throwable instanceof SocketTimeoutException) {
+            throw new Exception("Timeout: No response from actuator. Device ID: " + device.getDeviceID());
+        }
+        if (throwable instanceof IOException) {
+            logger.error("Error communicating with actuator ID {}: {}", device.getDeviceID(), throwable.getMessage());
+            throw new Exception("Error communicating with actuator ID " + device.getDeviceID() + ": " + throwable.getMessage());
+        }
+        if (throwable != null) {
+            throw throwable instanceof Exception ? (Exception) throwable : new Exception(throwable);
+        }
+        return validateResponse(device, responseJson);
+    }
 
-            logger.info("Locking actuator with ID: {} for opening", actuator.getDeviceID());
-            actuator.lock();
-            try {
-                sendActuatorCommand(actuator.getDeviceID(), degree);
-            } finally {
-                logger.info("Unlocking actuator with ID: {} after opening", actuator.getDeviceID());
-                actuator.unlock();
-            }
+    private String validateResponse(Device device, String responseJson) throws Exception {
+        if (responseJson == null || responseJson.isEmpty()) {
+            throw new Exception("Empty response received from actuator with ID: " + device.getDeviceID());
+        }
 
-            // Schedule a task to close the actuator after the specified duration
-            scheduler.schedule(() -> {
-                logger.info("Locking actuator with ID: {} for closing", actuator.getDeviceID());
-                actuator.lock();
-                try {
-                    sendActuatorCommand(actuator.getDeviceID(), 0); // Close the valve
-                } catch (Exception e) {
-                    logger.error("Error closing actuator ID {}: {}", actuator.getDeviceID(), e.getMessage());
-                } finally {
-                    logger.info("Unlocking actuator with ID: {} after closing", actuator.getDeviceID());
-                    actuator.unlock();
-                }
-            }, duration, TimeUnit.SECONDS);
+        // Validate the response
+        JsonObject response = JsonParser.parseString(responseJson).getAsJsonObject();
+        if (!"success".equalsIgnoreCase(response.get("messageType").getAsString())) {
+            throw new Exception("Failed response from actuator: " + responseJson);
         }
 
-        // Optional: Shut down the scheduler gracefully after all tasks are complete
-        scheduler.shutdown();
+        return responseJson;
     }
 }
@@ -0,0 +1,183 @@
+package io.mertkaniscan.automation_engine.services.device_services;
+
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-device circuit breaker for polls. After failureThreshold consecutive connect or read
+ * failures the circuit opens and calls to the device fail immediately instead of tying up
+ * a channel or thread until they time out. Once the backoff has elapsed a single call is
+ * let through as a half-open probe: success closes the circuit, failure reopens it with
+ * twice the backoff, capped at maxBackoffMs.
+ */
+@Service
+public class DeviceCircuitBreaker {
+
+    private static final Logger logger = LogManager.getLogger(DeviceCircuitBreaker.class);
+
+    private final DeviceProperties deviceProperties;
+    private final Map<Integer, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public DeviceCircuitBreaker(DeviceProperties deviceProperties) {
+        this.deviceProperties = deviceProperties;
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public record Snapshot(int deviceID, State state, int consecutiveFailures, long totalFailures,
+                           long rejectedCalls, long backoffMs, long openUntil) {
+    }
+
+    private static final class Circuit {
+        private final int deviceID;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long totalFailures;
+        private long rejectedCalls;
+        private long backoffMs;
+        private long openUntil;
+
+        private Circuit(int deviceID) {
+            this.deviceID = deviceID;
+        }
+
+        private Snapshot snapshot() {
+            return new Snapshot(deviceID, state, consecutiveFailures, totalFailures, rejectedCalls, backoffMs, openUntil);
+        }
+    }
+
+    // Side-effect free check, for callers that only want to skip a tick quietly
+    public boolean isCallPermitted(int deviceID) {
+        Circuit circuit = circuits.get(deviceID);
+        if (circuit == null || !deviceProperties.getBreaker().isEnabled()) {
+            return true;
+        }
+        synchronized (circuit) {
+            return circuit.state == State.CLOSED
+                    || (circuit.state == State.OPEN && System.currentTimeMillis() >= circuit.openUntil);
+        }
+    }
+
+    /**
+     * Claims a call to the device. Every successful claim must be followed by onSuccess or
+     * onFailure, otherwise a half-open circuit stays waiting for its probe.
+     */
+    public boolean tryAcquire(int deviceID) {
+        if (!deviceProperties.getBreaker().isEnabled()) {
+            return true;
+        }
+
+        Circuit circuit = circuit(deviceID);
+        synchronized (circuit) {
+            switch (circuit.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.currentTimeMillis() >= circuit.openUntil) {
+                        circuit.state = State.HALF_OPEN;
+                        logger.info("Probing device {} after {} ms open circuit.", deviceID, circuit.backoffMs);
+                        return true;
+                    }
+                    circuit.rejectedCalls++;
+                    return false;
+                default:
+                    // A probe is already in flight
+                    circuit.rejectedCalls++;
+                    return false;
+            }
+        }
+    }
+
+    public void onSuccess(int deviceID) {
+        Circuit circuit = circuits.get(deviceID);
+        if (circuit == null) {
+            return;
+        }
+        synchronized (circuit) {
+            if (circuit.state != State.CLOSED) {
+                logger.info("Device {} reachable again, closing circuit.", deviceID);
+            }
+            circuit.state = State.CLOSED;
+            circuit.consecutiveFailures = 0;
+            circuit.backoffMs = 0;
+            circuit.openUntil = 0;
+        }
+    }
+
+    public void onFailure(int deviceID) {
+        DeviceProperties.Breaker breaker = deviceProperties.getBreaker();
+        Circuit circuit = circuit(deviceID);
+
+        synchronized (circuit) {
+            circuit.consecutiveFailures++;
+            circuit.totalFailures++;
+
+            if (circuit.state == State.HALF_OPEN) {
+                open(circuit, Math.min(circuit.backoffMs * 2, breaker.getMaxBackoffMs()));
+            } else if (circuit.state == State.CLOSED && circuit.consecutiveFailures >= breaker.getFailureThreshold()) {
+                open(circuit, breaker.getInitialBackoffMs());
+            }
+        }
+    }
+
+    private void open(Circuit circuit, long backoffMs) {
+        circuit.state = State.OPEN;
+        circuit.backoffMs = backoffMs;
+        circuit.openUntil = System.currentTimeMillis() + backoffMs;
+        logger.warn("Opening circuit for device {} for {} ms after {} consecutive failures.",
+                circuit.deviceID, backoffMs, circuit.consecutiveFailures);
+    }
+
+    // Milliseconds until the next probe is allowed, 0 when calls are permitted
+    public long getRemainingBackoffMs(int deviceID) {
+        Circuit circuit = circuits.get(deviceID);
+        if (circuit == null) {
+            return 0;
+        }
+        synchronized (circuit) {
+            return circuit.state == State.OPEN ? Math.max(0, circuit.openUntil - System.currentTimeMillis()) : 0;
+        }
+    }
+
+    public Snapshot getSnapshot(int deviceID) {
+        Circuit circuit = circuits.get(deviceID);
+        if (circuit == null) {
+            return new Snapshot(deviceID, State.CLOSED, 0, 0, 0, 0, 0);
+        }
+        synchronized (circuit) {
+            return circuit.snapshot();
+        }
+    }
+
+    // Devices whose circuit is not closed
+    public List<Snapshot> getTrippedCircuits() {
+        List<Snapshot> tripped = new ArrayList<>();
+        for (Circuit circuit : circuits.values()) {
+            synchronized (circuit) {
+                if (circuit.state != State.CLOSED) {
+                    tripped.add(circuit.snapshot());
+                }
+            }
+        }
+        return tripped;
+    }
+
+    public void reset(int deviceID) {
+        circuits.remove(deviceID);
+    }
+
+    private Circuit circuit(int deviceID) {
+        return circuits.computeIfAbsent(deviceID, Circuit::new);
+    }
+}
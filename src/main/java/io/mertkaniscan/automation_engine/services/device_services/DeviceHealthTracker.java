@@ -0,0 +1,158 @@
+package io.mertkaniscan.automation_engine.services.device_services;
+
+import io.mertkaniscan.automation_engine.components.TimerWheelScheduler;
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.models.Device;
+import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory liveness of every device. Polls and pushes report here on each reply or
+ * failure; only real ACTIVE/INACTIVE transitions are queued, coalesced per device (the
+ * last one wins) and written as one bulk UPDATE per status every flush interval. Written
+ * transitions are broadcast to the dashboard on /topic/deviceStatus.
+ */
+@Service
+public class DeviceHealthTracker {
+
+    private static final Logger logger = LogManager.getLogger(DeviceHealthTracker.class);
+
+    public static final String STATUS_TOPIC = "/topic/deviceStatus";
+
+    private final DeviceService deviceService;
+    private final DeviceProperties deviceProperties;
+    private final TimerWheelScheduler timerWheelScheduler;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<Integer, Health> healthByDevice = new ConcurrentHashMap<>();
+    private final Map<Integer, Device.DeviceStatus> pendingTransitions = new ConcurrentHashMap<>();
+
+    private TimerWheelScheduler.Timer flushTimer;
+
+    public DeviceHealthTracker(@Lazy DeviceService deviceService, DeviceProperties deviceProperties,
+                               TimerWheelScheduler timerWheelScheduler, SimpMessagingTemplate messagingTemplate) {
+        this.deviceService = deviceService;
+        this.deviceProperties = deviceProperties;
+        this.timerWheelScheduler = timerWheelScheduler;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        long flushIntervalMs = deviceProperties.getHealth().getFlushIntervalMs();
+        flushTimer = timerWheelScheduler.scheduleAtFixedRate(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        timerWheelScheduler.cancel(flushTimer);
+        flush();
+    }
+
+    public record StatusChange(int deviceID, Device.DeviceStatus deviceStatus, long lastSeen) {
+    }
+
+    private static final class Health {
+        private volatile Device.DeviceStatus status;
+        private volatile long lastSeen;
+
+        private Health(Device.DeviceStatus status) {
+            this.status = status;
+        }
+    }
+
+    // The device answered a poll or pushed a frame
+    public void markAlive(int deviceID) {
+        Health health = health(deviceID);
+        health.lastSeen = System.currentTimeMillis();
+        transition(deviceID, health, Device.DeviceStatus.ACTIVE);
+    }
+
+    // A poll failed or timed out
+    public void markUnreachable(int deviceID) {
+        transition(deviceID, health(deviceID), Device.DeviceStatus.INACTIVE);
+    }
+
+    public Device.DeviceStatus getStatus(int deviceID) {
+        Health health = healthByDevice.get(deviceID);
+        return health != null ? health.status : null;
+    }
+
+    // Last successful contact, 0 when none since startup
+    public long getLastSeen(int deviceID) {
+        Health health = healthByDevice.get(deviceID);
+        return health != null ? health.lastSeen : 0;
+    }
+
+    public void forget(int deviceID) {
+        healthByDevice.remove(deviceID);
+        pendingTransitions.remove(deviceID);
+    }
+
+    private Health health(int deviceID) {
+        return healthByDevice.computeIfAbsent(deviceID, id -> {
+            // Seeded from the device catalog, so this costs no database read on the poll path
+            Device device = deviceService.getDeviceById(id);
+            return new Health(device != null ? device.getDeviceStatus() : null);
+        });
+    }
+
+    private void transition(int deviceID, Health health, Device.DeviceStatus status) {
+        if (health.status == status) {
+            return;
+        }
+        synchronized (health) {
+            if (health.status == status) {
+                return;
+            }
+            health.status = status;
+            pendingTransitions.put(deviceID, status);
+        }
+    }
+
+    void flush() {
+        if (pendingTransitions.isEmpty()) {
+            return;
+        }
+
+        Map<Device.DeviceStatus, List<Integer>> byStatus = new EnumMap<>(Device.DeviceStatus.class);
+        for (Integer deviceID : new ArrayList<>(pendingTransitions.keySet())) {
+            Device.DeviceStatus status = pendingTransitions.remove(deviceID);
+            if (status != null) {
+                byStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(deviceID);
+            }
+        }
+
+        List<StatusChange> changes = new ArrayList<>();
+        for (Map.Entry<Device.DeviceStatus, List<Integer>> entry : byStatus.entrySet()) {
+            try {
+                deviceService.updateDeviceStatuses(entry.getKey(), entry.getValue());
+                for (Integer deviceID : entry.getValue()) {
+                    changes.add(new StatusChange(deviceID, entry.getKey(), getLastSeen(deviceID)));
+                }
+            } catch (Exception e) {
+                logger.error("Error while writing {} status for devices {}: {}", entry.getKey(), entry.getValue(), e.getMessage());
+                // Retry on the next flush unless a newer transition replaced it
+                entry.getValue().forEach(deviceID -> pendingTransitions.putIfAbsent(deviceID, entry.getKey()));
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            logger.info("Persisted {} device status transitions.", changes.size());
+            messagingTemplate.convertAndSend(STATUS_TOPIC, changes);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package io.mertkaniscan.automation_engine.services.device_services;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.services.SensorConfigService;
 import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
+import io.mertkaniscan.automation_engine.utils.BinaryTelemetryFrame;
 import io.mertkaniscan.automation_engine.utils.DeviceJsonMessageFactory;
 import io.mertkaniscan.automation_engine.utils.DeviceSocketWrapper;
 import io.mertkaniscan.automation_engine.models.Device;
@@ -12,6 +16,7 @@ import io.mertkaniscan.automation_engine.services.main_services.FieldService;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,10 +27,10 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
@@ -33,19 +38,28 @@ public class DeviceJoinService {
 
     private static final Logger logger = LogManager.getLogger(DeviceJoinService.class);
 
-    private final ExecutorService clientHandlerPool = Executors.newCachedThreadPool();
     private final AtomicInteger activeDeviceTCPConnections = new AtomicInteger(0);
     private final List<DeviceSocketWrapper> activeDeviceSockets = new CopyOnWriteArrayList<>();
 
     private final DeviceService deviceService;
     private final FieldService fieldService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final DevicePollEngine devicePollEngine;
+    private final SensorConfigService sensorConfigService;
+    private final DeviceProperties deviceProperties;
+    private final ExecutorService deviceIoExecutor;
 
     @Autowired
-    public DeviceJoinService(DeviceService deviceService, FieldService fieldService, SimpMessagingTemplate messagingTemplate) {
+    public DeviceJoinService(DeviceService deviceService, FieldService fieldService, SimpMessagingTemplate messagingTemplate,
+                             DevicePollEngine devicePollEngine, SensorConfigService sensorConfigService,
+                             DeviceProperties deviceProperties, @Qualifier("deviceIoExecutor") ExecutorService deviceIoExecutor) {
         this.deviceService = deviceService;
         this.fieldService = fieldService;
         this.messagingTemplate = messagingTemplate;
+        this.devicePollEngine = devicePollEngine;
+        this.sensorConfigService = sensorConfigService;
+        this.deviceProperties = deviceProperties;
+        this.deviceIoExecutor = deviceIoExecutor;
     }
 
     public void startJoinServer(int port) {
@@ -57,7 +71,7 @@ public class DeviceJoinService {
                 String clientIp = deviceSocket.getInetAddress().getHostAddress();
 
                 logger.info("Accepted connection from device IP {}.", clientIp);
-                clientHandlerPool.submit(() -> handleDeviceJoinRequest(deviceSocket));
+                deviceIoExecutor.submit(() -> handleDeviceJoinRequest(deviceSocket));
             }
         } catch (IOException e) {
             logger.error("Could not listen on port {}.", port, e);
@@ -68,14 +82,22 @@ public class DeviceJoinService {
         activeDeviceTCPConnections.incrementAndGet();
 
         try {
+            // A silent client must not hold a shared device I/O thread
+            deviceSocket.setSoTimeout(deviceProperties.getJoin().getReadTimeoutMs());
             BufferedReader in = new BufferedReader(new InputStreamReader(deviceSocket.getInputStream()));
             logger.info("Device connected: {}", deviceSocket.getInetAddress());
 
             String joinRequest = in.readLine();
             if (joinRequest != null) {
                 processJoinRequest(joinRequest, deviceSocket);
+            } else {
+                closeQuietly(deviceSocket);
             }
 
+        } catch (SocketTimeoutException e) {
+            logger.warn("Device {} sent no join request within {} ms, closing.", deviceSocket.getInetAddress(),
+                    deviceProperties.getJoin().getReadTimeoutMs());
+            closeQuietly(deviceSocket);
         } catch (IOException e) {
             logger.error("Error while handling device join request.", e);
         } finally {
@@ -93,6 +115,7 @@ public class DeviceJoinService {
             String deviceModel = parsedRequest.get("deviceModel").getAsString();
 
             Device device = new Device(deviceID, null, deviceModel, deviceSocket.getInetAddress().getHostAddress(), deviceType);
+            device.setTelemetryProtocol(negotiateTelemetryProtocol(parsedRequest, deviceModel));
             DeviceSocketWrapper deviceWrapper = new DeviceSocketWrapper(deviceSocket, device);
 
             activeDeviceSockets.add(deviceWrapper);
@@ -108,13 +131,19 @@ public class DeviceJoinService {
 
                 // Device is already registered, update IP address if necessary
                 if (!existingDevice.getDeviceIp().equals(device.getDeviceIp())) {
-                    existingDevice.setDeviceIp(device.getDeviceIp());
-                    deviceService.updateDevice(deviceID, existingDevice);
+                    devicePollEngine.evict(existingDevice.getDeviceIp());
+                    deviceService.updateDeviceIp(deviceID, device.getDeviceIp());
                     logger.info("Device IP address updated.");
                 }
 
+                // Firmware may have been updated to speak (or stopped speaking) the binary format
+                if (existingDevice.getTelemetryProtocol() != device.getTelemetryProtocol()) {
+                    deviceService.updateDeviceTelemetryProtocol(deviceID, device.getTelemetryProtocol());
+                    logger.info("Device telemetry protocol set to {}.", device.getTelemetryProtocol());
+                }
+
                 // Send accept message to device
-                sendDeviceJoinAcceptResponse(deviceSocket);
+                sendDeviceJoinAcceptResponse(deviceSocket, device);
                 logger.info("Device join accept message sent.");
 
                 closeAndRemoveSocket(deviceWrapper);
@@ -125,6 +154,29 @@ public class DeviceJoinService {
         }
     }
 
+    private void closeQuietly(Socket deviceSocket) {
+        try {
+            deviceSocket.close();
+        } catch (IOException e) {
+            logger.debug("Error while closing join socket: {}", e.getMessage());
+        }
+    }
+
+    // Devices list the telemetry formats they support, e.g. "protocols": ["json", "binary-v1"]; JSON is the fallback
+    private Device.TelemetryProtocol negotiateTelemetryProtocol(JsonObject parsedRequest, String deviceModel) {
+        if (!parsedRequest.has("protocols") || !parsedRequest.get("protocols").isJsonArray()) {
+            return Device.TelemetryProtocol.JSON;
+        }
+
+        for (JsonElement protocol : parsedRequest.getAsJsonArray("protocols")) {
+            if (BinaryTelemetryFrame.PROTOCOL_NAME.equals(protocol.getAsString())
+                    && sensorConfigService.getSchemaIdForSensorType(deviceModel) != null) {
+                return Device.TelemetryProtocol.BINARY_V1;
+            }
+        }
+        return Device.TelemetryProtocol.JSON;
+    }
+
     @Transactional
     public String acceptDevice(int deviceID, int fieldID) {
 
@@ -144,7 +196,7 @@ public class DeviceJoinService {
             device.setField(field);
             device.setDeviceStatus(Device.DeviceStatus.ACTIVE);
 
-            sendDeviceJoinAcceptResponse(deviceWrapper.getSocket());
+            sendDeviceJoinAcceptResponse(deviceWrapper.getSocket(), device);
 
             deviceService.saveDevice(device);
             logger.info("Device accepted and assigned to field: {}", fieldID);
@@ -199,39 +251,52 @@ public class DeviceJoinService {
         }
     }
 
-    public static void sendDeviceJoinAcceptResponse(Socket deviceSocket) {
+    public void sendDeviceJoinAcceptResponse(Socket deviceSocket, Device device) {
 
         try {
             PrintWriter out = new PrintWriter(deviceSocket.getOutputStream(), true);
-            String message = DeviceJsonMessageFactory.createDeviceJoinResponse("join_accepted");
-
-            Thread.sleep(1000);
+            String message;
+            if (device.getTelemetryProtocol() == Device.TelemetryProtocol.BINARY_V1) {
+                message = DeviceJsonMessageFactory.createDeviceJoinResponse("join_accepted", BinaryTelemetryFrame.PROTOCOL_NAME,
+                        sensorConfigService.getSchemaIdForSensorType(device.getDeviceModel()));
+            } else {
+                message = DeviceJsonMessageFactory.createDeviceJoinResponse("join_accepted");
+            }
 
+            waitBeforeReply();
             out.println(message);
             logger.info("Join accept message sent to the device");
 
         } catch (IOException e) {
             logger.error("Error while sending join accept response", e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
         }
     }
 
-    public static void sendDeviceJoinRefuseResponse(Socket deviceSocket) {
+    public void sendDeviceJoinRefuseResponse(Socket deviceSocket) {
 
         try {
             PrintWriter out = new PrintWriter(deviceSocket.getOutputStream(), true);
             String message = DeviceJsonMessageFactory.createDeviceJoinResponse("join_refused");
 
-            Thread.sleep(1000);
-
+            waitBeforeReply();
             out.println(message);
             logger.info("Join refuse message sent to the device");
 
         } catch (IOException e) {
             logger.error("Error while sending join refuse response", e);
+        }
+    }
+
+    // Join replies have always been sent after this pause, which device firmware may rely on
+    private void waitBeforeReply() {
+        long replyDelayMs = deviceProperties.getJoin().getReplyDelayMs();
+        if (replyDelayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(replyDelayMs);
         } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            Thread.currentThread().interrupt();
         }
     }
 
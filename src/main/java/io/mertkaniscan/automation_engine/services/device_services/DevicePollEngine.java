@@ -0,0 +1,534 @@
+package io.mertkaniscan.automation_engine.services.device_services;
+
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.utils.BinaryTelemetryFrame;
+import io.mertkaniscan.automation_engine.utils.HashedTimerWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking device poller and the only owner of device sockets: polls and actuator
+ * commands, blocking or not, all go through here. A single selector thread multiplexes
+ * every outstanding request over non-blocking socket channels (one persistent channel
+ * per device IP, so single-connection nodes are never asked to accept a second one)
+ * and enforces per-request deadlines with a hashed timer wheel, so no thread is
+ * parked while a device is slow to answer. Besides the overall request deadline, the
+ * connect and the wait for the reply are bounded by the pool's connect and read
+ * timeouts, so an offline device fails after the connect timeout.
+ *
+ * Futures are completed on the selector thread; callers doing blocking work on the
+ * result must hop to their own executor (e.g. whenCompleteAsync).
+ */
+@Service
+public class DevicePollEngine {
+
+    private static final Logger logger = LogManager.getLogger(DevicePollEngine.class);
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 1024;
+    // Large enough for the biggest binary frame, which also bounds JSON lines
+    private static final int MAX_RESPONSE_SIZE = BinaryTelemetryFrame.MAX_FRAME_SIZE;
+
+    private static final ResponseDecoder<String> STRING_DECODER = (buffer, length) -> new String(buffer, 0, length, StandardCharsets.UTF_8);
+
+    private final DeviceProperties deviceProperties;
+    private final Queue<PollRequest> submissions = new ConcurrentLinkedQueue<>();
+    private final Queue<String> evictions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+
+    // Only touched by the selector thread
+    private final Map<String, DeviceChannel> channels = new HashMap<>();
+
+    private Selector selector;
+    private HashedTimerWheel<PollRequest> timerWheel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public DevicePollEngine(DeviceProperties deviceProperties) {
+        this.deviceProperties = deviceProperties;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        DeviceProperties.Poll poll = deviceProperties.getPoll();
+
+        selector = Selector.open();
+        timerWheel = new HashedTimerWheel<>(poll.getTimerTickMs(), poll.getTimerWheelSize(), System.currentTimeMillis());
+        running = true;
+
+        selectorThread = new Thread(this::runSelectorLoop, "device-poll-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    // How the end of a device reply is recognised
+    public enum Framing {
+        LINE,
+        LENGTH_PREFIXED
+    }
+
+    /**
+     * Decodes a reply frame in place, on the selector thread, straight from the channel's
+     * read buffer. Implementations must not keep a reference to the buffer.
+     */
+    @FunctionalInterface
+    public interface ResponseDecoder<T> {
+        T decode(byte[] buffer, int length) throws Exception;
+    }
+
+    public CompletableFuture<String> submit(String deviceIp, String request) {
+        return submit(deviceIp, request, deviceProperties.getPoll().getRequestTimeoutMs());
+    }
+
+    // Queues a newline-terminated request and completes with the device's reply line
+    public CompletableFuture<String> submit(String deviceIp, String request, long timeoutMs) {
+        return submit(deviceIp, request, timeoutMs, STRING_DECODER);
+    }
+
+    public <T> CompletableFuture<T> submit(String deviceIp, String request, ResponseDecoder<T> decoder) {
+        return submit(deviceIp, request, deviceProperties.getPoll().getRequestTimeoutMs(), decoder);
+    }
+
+    public <T> CompletableFuture<T> submit(String deviceIp, String request, long timeoutMs, ResponseDecoder<T> decoder) {
+        return submit(deviceIp, request, timeoutMs, Framing.LINE, decoder);
+    }
+
+    public <T> CompletableFuture<T> submit(String deviceIp, String request, Framing framing, ResponseDecoder<T> decoder) {
+        return submit(deviceIp, request, deviceProperties.getPoll().getRequestTimeoutMs(), framing, decoder);
+    }
+
+    // Requests are always newline-terminated text; framing only describes the reply
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(String deviceIp, String request, long timeoutMs, Framing framing, ResponseDecoder<T> decoder) {
+        PollRequest pollRequest = new PollRequest(deviceIp, (request + "\n").getBytes(StandardCharsets.UTF_8),
+                System.currentTimeMillis() + timeoutMs, framing, decoder);
+
+        if (!running) {
+            pollRequest.future.completeExceptionally(new IllegalStateException("Device poll engine is not running."));
+            return (CompletableFuture<T>) pollRequest.future;
+        }
+
+        outstandingRequests.incrementAndGet();
+        submissions.add(pollRequest);
+        selector.wakeup();
+        return (CompletableFuture<T>) pollRequest.future;
+    }
+
+    // Drops the channel to a device IP, e.g. after the device moved to another address
+    public void evict(String deviceIp) {
+        evictions.add(deviceIp);
+        selector.wakeup();
+    }
+
+    public int getOutstandingRequestCount() {
+        return outstandingRequests.get();
+    }
+
+    private void runSelectorLoop() {
+        logger.info("Device poll engine started.");
+        long tickMs = deviceProperties.getPoll().getTimerTickMs();
+
+        while (running) {
+            try {
+                selector.select(tickMs);
+                long now = System.currentTimeMillis();
+
+                acceptEvictions();
+                acceptSubmissions();
+                processSelectedKeys();
+                timerWheel.advance(now, this::expire);
+                closeIdleChannels(now);
+
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in device poll engine loop.", e);
+            }
+        }
+
+        shutdownChannels();
+        logger.info("Device poll engine stopped.");
+    }
+
+    private void acceptSubmissions() {
+        PollRequest request;
+        while ((request = submissions.poll()) != null) {
+            DeviceChannel deviceChannel = channels.computeIfAbsent(request.deviceIp, DeviceChannel::new);
+            request.timeout = timerWheel.schedule(request, request.deadline);
+            deviceChannel.pending.add(request);
+
+            if (deviceChannel.current == null) {
+                startNext(deviceChannel);
+            }
+        }
+    }
+
+    private void acceptEvictions() {
+        String deviceIp;
+        while ((deviceIp = evictions.poll()) != null) {
+            DeviceChannel deviceChannel = channels.get(deviceIp);
+            if (deviceChannel == null) {
+                continue;
+            }
+            if (deviceChannel.current == null) {
+                deviceChannel.close();
+            } else {
+                // Let the request in flight finish, the next one reconnects
+                deviceChannel.evicted = true;
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            DeviceChannel deviceChannel = (DeviceChannel) key.attachment();
+            if (!key.isValid() || deviceChannel.current == null) {
+                continue;
+            }
+
+            try {
+                if (key.isConnectable()) {
+                    finishConnect(deviceChannel, key);
+                } else if (key.isWritable()) {
+                    write(deviceChannel, key);
+                } else if (key.isReadable()) {
+                    read(deviceChannel);
+                }
+            } catch (IOException e) {
+                handleChannelFailure(deviceChannel, e);
+            }
+        }
+    }
+
+    private void startNext(DeviceChannel deviceChannel) {
+        PollRequest request = deviceChannel.pending.poll();
+        if (request == null) {
+            return;
+        }
+
+        deviceChannel.current = request;
+        deviceChannel.writeBuffer = ByteBuffer.wrap(request.payload);
+        deviceChannel.readBuffer.clear();
+        if (request.stage != Stage.QUEUED) {
+            // Retried on a fresh channel, back under the overall deadline
+            advanceStage(request, Stage.QUEUED, 0);
+        }
+
+        if (deviceChannel.evicted) {
+            deviceChannel.evicted = false;
+            deviceChannel.close();
+        }
+
+        try {
+            if (deviceChannel.isOpen()) {
+                deviceChannel.reused = true;
+                deviceChannel.key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                deviceChannel.reused = false;
+                connect(deviceChannel);
+            }
+        } catch (IOException e) {
+            handleChannelFailure(deviceChannel, e);
+        }
+    }
+
+    private void connect(DeviceChannel deviceChannel) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            boolean connected = channel.connect(new InetSocketAddress(deviceChannel.deviceIp, deviceProperties.getPort()));
+            deviceChannel.channel = channel;
+            deviceChannel.key = channel.register(selector,
+                    connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, deviceChannel);
+
+            if (!connected) {
+                advanceStage(deviceChannel.current, Stage.CONNECTING, deviceProperties.getPool().getConnectTimeoutMs());
+            }
+        } catch (IOException e) {
+            channel.close();
+            deviceChannel.channel = null;
+            throw e;
+        }
+    }
+
+    private void finishConnect(DeviceChannel deviceChannel, SelectionKey key) throws IOException {
+        if (deviceChannel.channel.finishConnect()) {
+            advanceStage(deviceChannel.current, Stage.QUEUED, 0);
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void write(DeviceChannel deviceChannel, SelectionKey key) throws IOException {
+        deviceChannel.channel.write(deviceChannel.writeBuffer);
+        if (!deviceChannel.writeBuffer.hasRemaining()) {
+            advanceStage(deviceChannel.current, Stage.AWAITING_REPLY, deviceProperties.getPool().getReadTimeoutMs());
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    // Re-arms the request's timeout for its new stage; a stage timeout never extends the overall deadline
+    private void advanceStage(PollRequest request, Stage stage, long stageTimeoutMs) {
+        request.stage = stage;
+        long deadline = stageTimeoutMs > 0
+                ? Math.min(request.deadline, System.currentTimeMillis() + stageTimeoutMs)
+                : request.deadline;
+
+        if (request.timeout != null) {
+            request.timeout.cancel();
+        }
+        request.timeout = timerWheel.schedule(request, deadline);
+    }
+
+    private void read(DeviceChannel deviceChannel) throws IOException {
+        ByteBuffer buffer = deviceChannel.readBuffer;
+        if (!buffer.hasRemaining()) {
+            if (buffer.capacity() >= MAX_RESPONSE_SIZE) {
+                throw new IOException("Response from device IP " + deviceChannel.deviceIp + " exceeds " + MAX_RESPONSE_SIZE + " bytes.");
+            }
+            deviceChannel.readBuffer = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAX_RESPONSE_SIZE)).put(buffer.flip());
+            buffer = deviceChannel.readBuffer;
+        }
+
+        int scanFrom = buffer.position();
+        int bytesRead = deviceChannel.channel.read(buffer);
+        if (bytesRead == -1) {
+            throw new EOFException("Connection closed by device IP " + deviceChannel.deviceIp);
+        }
+
+        if (deviceChannel.current.framing == Framing.LENGTH_PREFIXED) {
+            int frameLength;
+            try {
+                frameLength = BinaryTelemetryFrame.frameLength(buffer.array(), buffer.position());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid frame from device IP " + deviceChannel.deviceIp + ": " + e.getMessage());
+            }
+            if (frameLength >= 0) {
+                complete(deviceChannel, buffer.array(), frameLength);
+            }
+            return;
+        }
+
+        for (int i = scanFrom; i < buffer.position(); i++) {
+            if (buffer.get(i) == '\n') {
+                int end = (i > 0 && buffer.get(i - 1) == '\r') ? i - 1 : i;
+                complete(deviceChannel, buffer.array(), end);
+                return;
+            }
+        }
+    }
+
+    private void complete(DeviceChannel deviceChannel, byte[] buffer, int length) {
+        PollRequest request = deviceChannel.current;
+        finish(deviceChannel, request);
+        deviceChannel.lastUsed = System.currentTimeMillis();
+        deviceChannel.key.interestOps(0);
+
+        // Decode before startNext() reuses the read buffer
+        try {
+            request.future.complete(request.decoder.decode(buffer, length));
+        } catch (Exception e) {
+            request.future.completeExceptionally(e);
+        }
+        startNext(deviceChannel);
+    }
+
+    private void handleChannelFailure(DeviceChannel deviceChannel, IOException e) {
+        PollRequest request = deviceChannel.current;
+        boolean retry = deviceChannel.reused && deviceChannel.readBuffer.position() == 0 && !request.retried;
+        deviceChannel.close();
+
+        if (retry) {
+            // The device dropped a persistent channel we believed was alive, retry once on a fresh one
+            logger.debug("Reconnecting to device IP {} after stale channel: {}", deviceChannel.deviceIp, e.getMessage());
+            request.retried = true;
+            deviceChannel.current = null;
+            deviceChannel.pending.addFirst(request);
+        } else {
+            finish(deviceChannel, request);
+            request.future.completeExceptionally(e);
+        }
+        startNext(deviceChannel);
+    }
+
+    private void expire(PollRequest request) {
+        DeviceChannel deviceChannel = channels.get(request.deviceIp);
+        SocketTimeoutException timeout = new SocketTimeoutException(timeoutMessage(request));
+
+        if (deviceChannel != null && deviceChannel.current == request) {
+            // A late reply would be mistaken for the next request's answer, so drop the channel
+            deviceChannel.close();
+            finish(deviceChannel, request);
+            request.future.completeExceptionally(timeout);
+            startNext(deviceChannel);
+        } else {
+            if (deviceChannel != null) {
+                deviceChannel.pending.remove(request);
+            }
+            outstandingRequests.decrementAndGet();
+            request.future.completeExceptionally(timeout);
+        }
+    }
+
+    private String timeoutMessage(PollRequest request) {
+        long now = System.currentTimeMillis();
+        if (request.stage == Stage.CONNECTING && now < request.deadline) {
+            return "Could not connect to device IP " + request.deviceIp + " within "
+                    + deviceProperties.getPool().getConnectTimeoutMs() + " ms.";
+        }
+        if (request.stage == Stage.AWAITING_REPLY && now < request.deadline) {
+            return "No response from device IP " + request.deviceIp + " within "
+                    + deviceProperties.getPool().getReadTimeoutMs() + " ms.";
+        }
+        return "No response from device IP " + request.deviceIp + " within "
+                + deviceProperties.getPoll().getRequestTimeoutMs() + " ms.";
+    }
+
+    private void finish(DeviceChannel deviceChannel, PollRequest request) {
+        if (request.timeout != null) {
+            request.timeout.cancel();
+        }
+        deviceChannel.current = null;
+        outstandingRequests.decrementAndGet();
+    }
+
+    private void closeIdleChannels(long now) {
+        long idleTimeout = deviceProperties.getPool().getIdleTimeoutMs();
+
+        channels.values().removeIf(deviceChannel -> {
+            if (deviceChannel.current != null || !deviceChannel.pending.isEmpty()) {
+                return false;
+            }
+            if (now - deviceChannel.lastUsed > idleTimeout) {
+                deviceChannel.close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void shutdownChannels() {
+        IllegalStateException stopped = new IllegalStateException("Device poll engine stopped.");
+
+        for (DeviceChannel deviceChannel : channels.values()) {
+            deviceChannel.close();
+            if (deviceChannel.current != null) {
+                deviceChannel.current.future.completeExceptionally(stopped);
+            }
+            deviceChannel.pending.forEach(request -> request.future.completeExceptionally(stopped));
+        }
+        channels.clear();
+
+        PollRequest request;
+        while ((request = submissions.poll()) != null) {
+            request.future.completeExceptionally(stopped);
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error while closing selector: {}", e.getMessage());
+        }
+    }
+
+    // Which timeout currently bounds a request
+    private enum Stage {
+        QUEUED,
+        CONNECTING,
+        AWAITING_REPLY
+    }
+
+    private static class PollRequest {
+        private final String deviceIp;
+        private final byte[] payload;
+        private final long deadline;
+        private final Framing framing;
+        private final ResponseDecoder<?> decoder;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private HashedTimerWheel.Timeout<PollRequest> timeout;
+        private Stage stage = Stage.QUEUED;
+        private boolean retried;
+
+        PollRequest(String deviceIp, byte[] payload, long deadline, Framing framing, ResponseDecoder<?> decoder) {
+            this.deviceIp = deviceIp;
+            this.payload = payload;
+            this.deadline = deadline;
+            this.framing = framing;
+            this.decoder = decoder;
+        }
+    }
+
+    private static class DeviceChannel {
+        private final String deviceIp;
+        private final ArrayDeque<PollRequest> pending = new ArrayDeque<>();
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private PollRequest current;
+        private ByteBuffer writeBuffer;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+        private boolean reused;
+        private boolean evicted;
+        private long lastUsed = System.currentTimeMillis();
+
+        DeviceChannel(String deviceIp) {
+            this.deviceIp = deviceIp;
+        }
+
+        boolean isOpen() {
+            return channel != null && channel.isOpen() && channel.isConnected() && key != null && key.isValid();
+        }
+
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Error while closing channel to device IP {}: {}", deviceIp, e.getMessage());
+                }
+            }
+            key = null;
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package io.mertkaniscan.automation_engine.services.device_services;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.mertkaniscan.automation_engine.config.ServerProperties;
+import io.mertkaniscan.automation_engine.models.Device;
+import io.mertkaniscan.automation_engine.models.SensorData;
+import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
+import io.mertkaniscan.automation_engine.services.main_services.RecentReadingsService;
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataIngestionService;
+import io.mertkaniscan.automation_engine.utils.BinaryTelemetryFrame;
+import io.mertkaniscan.automation_engine.utils.DeviceJsonMessageFactory;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Ingestion server for devices that stream readings instead of being polled. A device
+ * opens a long-lived connection, sends {"messageType": "push_hello", "deviceId": N}
+ * and, once answered with push_accepted, pushes frames in the telemetry protocol it
+ * negotiated at join time (JSON lines or binary-v1 frames) whenever it wants to, e.g.
+ * on its own interval or when a value moves by more than its deadband. A hello is only
+ * accepted from the IP the device is registered with.
+ *
+ * One selector thread serves every stream; parsed readings are handed to the device
+ * I/O executor for ingestion. Devices with an open stream are skipped by the poller.
+ */
+@Service
+public class DevicePushServer {
+
+    private static final Logger logger = LogManager.getLogger(DevicePushServer.class);
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 1024;
+    // Large enough for the biggest binary frame, which also bounds JSON lines
+    private static final int MAX_FRAME_SIZE = BinaryTelemetryFrame.MAX_FRAME_SIZE;
+
+    private final ServerProperties serverProperties;
+    private final DeviceService deviceService;
+    private final SensorDataSocketService sensorDataSocketService;
+    private final SensorDataIngestionService sensorDataIngestionService;
+    private final RecentReadingsService recentReadingsService;
+    private final DeviceHealthTracker deviceHealthTracker;
+    private final ExecutorService deviceIoExecutor;
+
+    private final Map<Integer, PushConnection> streamsByDevice = new ConcurrentHashMap<>();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    // Only touched by the selector thread
+    private final Set<PushConnection> connections = new HashSet<>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    @Autowired
+    public DevicePushServer(ServerProperties serverProperties, @Lazy DeviceService deviceService,
+                            SensorDataSocketService sensorDataSocketService, SensorDataIngestionService sensorDataIngestionService,
+                            RecentReadingsService recentReadingsService, DeviceHealthTracker deviceHealthTracker,
+                            @Qualifier("deviceIoExecutor") ExecutorService deviceIoExecutor) {
+        this.serverProperties = serverProperties;
+        this.deviceService = deviceService;
+        this.sensorDataSocketService = sensorDataSocketService;
+        this.sensorDataIngestionService = sensorDataIngestionService;
+        this.recentReadingsService = recentReadingsService;
+        this.deviceHealthTracker = deviceHealthTracker;
+        this.deviceIoExecutor = deviceIoExecutor;
+    }
+
+    public void startPushServer(int port) {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            logger.error("Could not listen for pushed sensor data on port {}.", port, e);
+            return;
+        }
+
+        running = true;
+        Thread selectorThread = new Thread(this::runSelectorLoop, "device-push-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("Listening for pushed sensor data on port {}.", port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    // True while the device keeps a push stream open, in which case there is no need to poll it
+    public boolean isStreaming(int deviceID) {
+        return streamsByDevice.containsKey(deviceID);
+    }
+
+    public int getStreamCount() {
+        return streamsByDevice.size();
+    }
+
+    private void runSelectorLoop() {
+        long idleTimeoutMs = serverProperties.getPush().getIdleTimeoutMs();
+        long checkIntervalMs = Math.min(1000, idleTimeoutMs);
+
+        while (running) {
+            try {
+                selector.select(checkIntervalMs);
+
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+
+                processSelectedKeys();
+                closeIdleConnections(System.currentTimeMillis(), idleTimeoutMs);
+
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in device push server loop.", e);
+            }
+        }
+
+        shutdown();
+        logger.info("Device push server stopped.");
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            if (!key.isValid()) {
+                continue;
+            }
+
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+
+            PushConnection connection = (PushConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(connection);
+                }
+            } catch (IOException e) {
+                logger.debug("Push stream from {} closed: {}", connection.remoteAddress, e.getMessage());
+                close(connection);
+            }
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                PushConnection connection = new PushConnection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+                logger.debug("Accepted push connection from {}.", connection.remoteAddress);
+            }
+        } catch (IOException e) {
+            logger.error("Error while accepting push connection.", e);
+        }
+    }
+
+    private void read(PushConnection connection) throws IOException {
+        ByteBuffer buffer = connection.readBuffer;
+        if (!buffer.hasRemaining()) {
+            if (buffer.capacity() >= MAX_FRAME_SIZE) {
+                throw new IOException("Frame exceeds " + MAX_FRAME_SIZE + " bytes.");
+            }
+            connection.readBuffer = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAX_FRAME_SIZE)).put(buffer.flip());
+            buffer = connection.readBuffer;
+        }
+
+        if (connection.channel.read(buffer) == -1) {
+            throw new IOException("Connection closed by device.");
+        }
+        connection.lastReceived = System.currentTimeMillis();
+
+        if (connection.device == null) {
+            readHello(connection);
+        } else {
+            drainFrames(connection);
+        }
+    }
+
+    private void readHello(PushConnection connection) throws IOException {
+        int lineEnd = indexOfNewline(connection.readBuffer, 0);
+        if (lineEnd < 0 || connection.helloPending) {
+            return;
+        }
+
+        String hello = new String(connection.readBuffer.array(), 0, lineEnd, StandardCharsets.UTF_8).trim();
+        consume(connection.readBuffer, lineEnd + 1);
+
+        int deviceID;
+        try {
+            JsonObject parsedHello = JsonParser.parseString(hello).getAsJsonObject();
+            if (!"push_hello".equals(parsedHello.get("messageType").getAsString())) {
+                throw new IOException("Expected push_hello, received: " + hello);
+            }
+            deviceID = parsedHello.get("deviceId").getAsInt();
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid push_hello: " + hello);
+        }
+
+        // The device lookup hits the database, so do it off the selector thread and stop reading meanwhile
+        connection.helloPending = true;
+        connection.key.interestOps(0);
+        deviceIoExecutor.execute(() -> {
+            Device device = lookupDevice(deviceID);
+            selectorTasks.add(() -> attach(connection, deviceID, device));
+            selector.wakeup();
+        });
+    }
+
+    private Device lookupDevice(int deviceID) {
+        try {
+            Device device = deviceService.getDeviceById(deviceID);
+            if (device == null || !device.isSensor()) {
+                return null;
+            }
+            deviceHealthTracker.markAlive(deviceID);
+            return device;
+        } catch (Exception e) {
+            logger.error("Error while looking up pushing device {}.", deviceID, e);
+            return null;
+        }
+    }
+
+    private void attach(PushConnection connection, int deviceID, Device device) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+
+        if (device == null) {
+            logger.warn("Refusing push stream for unknown or non-sensor device {}.", deviceID);
+            reply(connection, "push_refused");
+            close(connection);
+            return;
+        }
+
+        // Only the device itself may take over its stream; otherwise any client could silence its polls
+        if (connection.remoteHost == null || !connection.remoteHost.equals(device.getDeviceIp())) {
+            logger.warn("Refusing push stream for device {} from {}, the device is registered at {}.",
+                    deviceID, connection.remoteAddress, device.getDeviceIp());
+            reply(connection, "push_refused");
+            close(connection);
+            return;
+        }
+
+        connection.device = device;
+        connection.helloPending = false;
+
+        PushConnection previous = streamsByDevice.put(deviceID, connection);
+        if (previous != null && previous != connection) {
+            // The device reconnected before its old stream timed out
+            close(previous);
+        }
+
+        reply(connection, "push_accepted");
+        logger.info("Device {} is now streaming sensor data ({}).", deviceID, device.getTelemetryProtocol());
+
+        try {
+            connection.key.interestOps(SelectionKey.OP_READ);
+            drainFrames(connection);
+        } catch (IOException e) {
+            logger.debug("Push stream from device {} closed: {}", deviceID, e.getMessage());
+            close(connection);
+        }
+    }
+
+    // Parses every complete frame in the read buffer and leaves a partial one for the next read
+    private void drainFrames(PushConnection connection) throws IOException {
+        ByteBuffer buffer = connection.readBuffer;
+        boolean binary = connection.device.getTelemetryProtocol() == Device.TelemetryProtocol.BINARY_V1;
+        List<SensorData> readings = new ArrayList<>();
+
+        while (buffer.position() > 0) {
+            int frameEnd;
+            int frameLength;
+
+            if (binary) {
+                try {
+                    frameLength = BinaryTelemetryFrame.frameLength(buffer.array(), buffer.position());
+                } catch (IllegalArgumentException e) {
+                    // Frame boundaries are lost, the device has to reconnect
+                    throw new IOException(e.getMessage());
+                }
+                if (frameLength < 0) {
+                    break;
+                }
+                frameEnd = frameLength;
+            } else {
+                int lineEnd = indexOfNewline(buffer, 0);
+                if (lineEnd < 0) {
+                    break;
+                }
+                frameEnd = lineEnd + 1;
+                frameLength = (lineEnd > 0 && buffer.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+            }
+
+            if (frameLength > 0) {
+                try {
+                    readings.addAll(sensorDataSocketService.parsePushedFrame(connection.device, buffer.array(), frameLength));
+                } catch (Exception e) {
+                    logger.warn("Discarding pushed frame from device {}: {}", connection.device.getDeviceID(), e.getMessage());
+                }
+            }
+            consume(buffer, frameEnd);
+        }
+
+        if (!readings.isEmpty()) {
+            Device device = connection.device;
+            deviceIoExecutor.execute(() -> ingest(device, readings));
+        }
+    }
+
+    private void ingest(Device device, List<SensorData> readings) {
+        try {
+            sensorDataIngestionService.enqueue(readings);
+            recentReadingsService.record(readings);
+            deviceHealthTracker.markAlive(device.getDeviceID());
+            logger.debug("Queued {} pushed readings from device {}.", readings.size(), device.getDeviceID());
+        } catch (Exception e) {
+            logger.error("Error while ingesting pushed sensor data from device {}: {}", device.getDeviceID(), e.getMessage());
+        }
+    }
+
+    // Replies are a few dozen bytes, a fresh socket buffer always takes them in one write
+    private void reply(PushConnection connection, String messageType) {
+        ByteBuffer message = ByteBuffer.wrap((DeviceJsonMessageFactory.createPushResponse(messageType) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        try {
+            connection.channel.write(message);
+            if (message.hasRemaining()) {
+                logger.warn("Could not send {} to {} in one write.", messageType, connection.remoteAddress);
+            }
+        } catch (IOException e) {
+            logger.debug("Error while sending {} to {}: {}", messageType, connection.remoteAddress, e.getMessage());
+        }
+    }
+
+    private void closeIdleConnections(long now, long idleTimeoutMs) {
+        List<PushConnection> idle = new ArrayList<>();
+        for (PushConnection connection : connections) {
+            if (!connection.helloPending && now - connection.lastReceived > idleTimeoutMs) {
+                idle.add(connection);
+            }
+        }
+        for (PushConnection connection : idle) {
+            logger.info("Closing silent push stream from {}.", connection.remoteAddress);
+            close(connection);
+        }
+    }
+
+    private void close(PushConnection connection) {
+        connections.remove(connection);
+        if (connection.device != null) {
+            streamsByDevice.remove(connection.device.getDeviceID(), connection);
+        }
+        if (connection.key != null) {
+            connection.key.cancel();
+        }
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            logger.debug("Error while closing push connection from {}: {}", connection.remoteAddress, e.getMessage());
+        }
+    }
+
+    private void shutdown() {
+        new ArrayList<>(connections).forEach(this::close);
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error while closing push server: {}", e.getMessage());
+        }
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.position(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Drops the first count bytes, moving the rest to the front of the buffer
+    private static void consume(ByteBuffer buffer, int count) {
+        buffer.flip();
+        buffer.position(count);
+        buffer.compact();
+    }
+
+    private static class PushConnection {
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        // Host part of the remote address, compared with the device's registered IP
+        private final String remoteHost;
+
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+        private Device device;
+        private boolean helloPending;
+        private long lastReceived = System.currentTimeMillis();
+
+        PushConnection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+            this.remoteHost = channel.getRemoteAddress() instanceof InetSocketAddress address && address.getAddress() != null
+                    ? address.getAddress().getHostAddress()
+                    : null;
+        }
+    }
+}
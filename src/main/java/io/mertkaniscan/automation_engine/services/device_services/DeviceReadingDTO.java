@@ -0,0 +1,70 @@
+package io.mertkaniscan.automation_engine.services.device_services;
+
+import java.util.List;
+
+public class DeviceReadingDTO {
+
+    public enum Status {
+        // Read from the device within the deadline
+        LIVE,
+        // Taken from the latest poll because it was fresh enough
+        CACHED,
+        // No reply before the overall deadline
+        TIMEOUT,
+        FAILED
+    }
+
+    private int deviceID;
+    private Status status;
+    private long timestamp;
+    private List<SensorDataDTO> readings;
+    private String error;
+
+    public DeviceReadingDTO(int deviceID, Status status, long timestamp, List<SensorDataDTO> readings, String error) {
+        this.deviceID = deviceID;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.readings = readings;
+        this.error = error;
+    }
+
+    public int getDeviceID() {
+        return deviceID;
+    }
+
+    public void setDeviceID(int deviceID) {
+        this.deviceID = deviceID;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public List<SensorDataDTO> getReadings() {
+        return readings;
+    }
+
+    public void setReadings(List<SensorDataDTO> readings) {
+        this.readings = readings;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
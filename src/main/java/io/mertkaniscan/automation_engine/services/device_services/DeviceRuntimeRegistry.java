@@ -0,0 +1,138 @@
+package io.mertkaniscan.automation_engine.services.device_services;
+
+import org.springframework.stereotype.Service;
+
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide runtime state per device, keyed by deviceID so every caller sees the same
+ * instance no matter how many Device entities were loaded. Each device owns a lock-free
+ * command queue: commands (polls, valve moves) run one at a time in submission order,
+ * the next one starting when the previous one's future completes. No thread is parked
+ * while a command waits its turn, and different devices share nothing but the map.
+ */
+@Service
+public class DeviceRuntimeRegistry {
+
+    private final Map<Integer, DeviceRuntime> runtimes = new ConcurrentHashMap<>();
+
+    public DeviceRuntime get(int deviceID) {
+        return runtimes.computeIfAbsent(deviceID, DeviceRuntime::new);
+    }
+
+    // Queues a non-blocking command; it is started once every earlier command to the device has completed
+    public <T> CompletableFuture<T> submit(int deviceID, Supplier<CompletableFuture<T>> command) {
+        return get(deviceID).enqueue(command);
+    }
+
+    /**
+     * Blocking wait for a command queued with submit. A command that has not started when
+     * timeoutMs runs out is cancelled and skipped; one already started is bounded by the
+     * poll engine's own deadline.
+     */
+    public <T> T await(CompletableFuture<T> queued, long timeoutMs) throws Exception {
+        try {
+            return queued.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            queued.cancel(false);
+            throw new SocketTimeoutException("No response within " + timeoutMs + " ms.");
+        } catch (InterruptedException e) {
+            queued.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    public void remove(int deviceID) {
+        runtimes.remove(deviceID);
+    }
+
+    public static final class DeviceRuntime {
+        private final int deviceID;
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean active = new AtomicBoolean();
+        private final AtomicInteger queuedCommands = new AtomicInteger();
+
+        private DeviceRuntime(int deviceID) {
+            this.deviceID = deviceID;
+        }
+
+        public int getDeviceID() {
+            return deviceID;
+        }
+
+        // Commands waiting or running for this device
+        public int getQueuedCommandCount() {
+            return queuedCommands.get();
+        }
+
+        private <T> CompletableFuture<T> enqueue(Supplier<CompletableFuture<T>> command) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            queuedCommands.incrementAndGet();
+
+            pending.add(() -> {
+                if (result.isDone()) {
+                    // The caller gave up (cancelled) before the device's turn came, never send it late
+                    queuedCommands.decrementAndGet();
+                    runNext();
+                    return;
+                }
+
+                CompletableFuture<T> started;
+                try {
+                    started = command.get();
+                } catch (Throwable t) {
+                    started = CompletableFuture.failedFuture(t);
+                }
+                started.whenComplete((value, throwable) -> {
+                    queuedCommands.decrementAndGet();
+                    if (throwable != null) {
+                        result.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause() : throwable);
+                    } else {
+                        result.complete(value);
+                    }
+                    runNext();
+                });
+            });
+
+            if (active.compareAndSet(false, true)) {
+                runNext();
+            }
+            return result;
+        }
+
+        private void runNext() {
+            while (true) {
+                Runnable next = pending.poll();
+                if (next != null) {
+                    next.run();
+                    return;
+                }
+                active.set(false);
+                // A command queued between poll() and set(false) would otherwise be stranded
+                if (pending.isEmpty() || !active.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package io.mertkaniscan.automation_engine.services.device_services;
 
-import java.math.BigDecimal;
-
 public class SensorDataDTO {
     private String dataType;
-    private BigDecimal dataValue;
+    private double dataValue;
 
-    public SensorDataDTO(String dataType, BigDecimal dataValue) {
+    public SensorDataDTO(String dataType, double dataValue) {
         this.dataType = dataType;
         this.dataValue = dataValue;
     }
@@ -19,11 +17,11 @@ public class SensorDataDTO {
         this.dataType = dataType;
     }
 
-    public BigDecimal getDataValue() {
+    public double getDataValue() {
         return dataValue;
     }
 
-    public void setDataValue(BigDecimal dataValue) {
+    public void setDataValue(double dataValue) {
         this.dataValue = dataValue;
     }
 }
@@ -1,28 +1,30 @@
 package io.mertkaniscan.automation_engine.services.device_services;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
 import io.mertkaniscan.automation_engine.models.SensorData;
 import io.mertkaniscan.automation_engine.services.SensorConfigService;
 import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
+import io.mertkaniscan.automation_engine.services.main_services.RecentReadingsService;
+import io.mertkaniscan.automation_engine.utils.BinaryTelemetryFrame;
 import io.mertkaniscan.automation_engine.utils.DeviceJsonMessageFactory;
+import io.mertkaniscan.automation_engine.utils.TelemetryFrameReader;
 import io.mertkaniscan.automation_engine.models.Device;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
-import java.math.BigDecimal;
-import java.net.Socket;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -30,15 +32,32 @@ import org.apache.logging.log4j.LogManager;
 public class SensorDataSocketService {
 
     private static final Logger logger = LogManager.getLogger(SensorDataSocketService.class);
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
 
     @Autowired
     private DeviceService deviceService;
 
+    @Autowired
+    private DevicePollEngine devicePollEngine;
+
     @Autowired
     private SensorConfigService sensorConfigService;
 
-    public <T> List<T> fetchSensorData(int deviceID, DataParser<T> parser) throws Exception {
+    @Autowired
+    private DeviceRuntimeRegistry deviceRuntimeRegistry;
+
+    @Autowired
+    private DeviceCircuitBreaker deviceCircuitBreaker;
+
+    @Autowired
+    private RecentReadingsService recentReadingsService;
+
+    @Autowired
+    private DeviceProperties deviceProperties;
+
+    private final Map<String, TelemetryFrameReader.ExpectedKeys> expectedKeysByModel = new ConcurrentHashMap<>();
+
+    // Blocking read for API callers; goes through the same channel and device queue as scheduled polls
+    public <T> List<T> fetchSensorData(int deviceID, DataFactory<T> factory) throws Exception {
         Device device = deviceService.getDeviceById(deviceID);
 
         if (device == null) {
@@ -49,126 +68,260 @@ public class SensorDataSocketService {
             throw new Exception("Device with ID " + deviceID + " is not a sensor device.");
         }
 
-        logger.info("Locking device with ID: {}", device.getDeviceID());
-        device.lock();
+        TelemetryFrameReader.ExpectedKeys expectedKeys = getExpectedKeys(device.getDeviceModel());
+        if (expectedKeys == null) {
+            logger.warn("No configuration found for sensor type: {}", device.getDeviceModel());
+            return new ArrayList<>();
+        }
+
+        if (!deviceCircuitBreaker.tryAcquire(deviceID)) {
+            throw new Exception(circuitOpenMessage(device));
+        }
+
+        TelemetryFrameReader.Frame frame = null;
+        Throwable failure = null;
         try {
-            return communicateWithDevice(device, parser);
-        } finally {
-            logger.info("Unlocking device with ID: {}", device.getDeviceID());
-            device.unlock();
+            frame = deviceRuntimeRegistry.await(requestFrame(device, expectedKeys), deviceProperties.getPoll().getRequestTimeoutMs());
+        } catch (Exception e) {
+            failure = e;
         }
+
+        return buildReadings(checkFrame(device, frame, failure), expectedKeys, device, factory);
     }
 
-    private <T> List<T> communicateWithDevice(Device device, DataParser<T> parser) throws Exception {
-        String deviceIp = device.getDeviceIp();
+    // Non-blocking variant for scheduled polls; the reply is parsed on the poll engine's selector thread
+    public CompletableFuture<List<SensorData>> fetchSensorDataAsync(int deviceID) {
+        Device device = deviceService.getDeviceById(deviceID);
 
-        Callable<List<T>> fetchSensorDataTask = () -> {
-            try (Socket socket = new Socket(deviceIp, 5000);
-                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+        if (device == null) {
+            return CompletableFuture.failedFuture(new Exception("Device not found with ID: " + deviceID));
+        }
 
-                String command = DeviceJsonMessageFactory.pullSensorData();
-                out.println(command);
+        if (!device.isSensor()) {
+            return CompletableFuture.failedFuture(new Exception("Device with ID " + deviceID + " is not a sensor device."));
+        }
+
+        TelemetryFrameReader.ExpectedKeys expectedKeys = getExpectedKeys(device.getDeviceModel());
+        if (expectedKeys == null) {
+            logger.warn("No configuration found for sensor type: {}", device.getDeviceModel());
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        if (!deviceCircuitBreaker.tryAcquire(deviceID)) {
+            return CompletableFuture.failedFuture(new Exception(circuitOpenMessage(device)));
+        }
+
+        return requestFrame(device, expectedKeys).handle((frame, throwable) -> {
+            try {
+                return buildReadings(checkFrame(device, frame, throwable), expectedKeys, device, this::createSensorData);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-                String sensorDataJson = in.readLine();
+    // Queues send_sensordata in the device's turn; the frame is decoded straight from the poll engine's read buffer
+    private CompletableFuture<TelemetryFrameReader.Frame> requestFrame(Device device, TelemetryFrameReader.ExpectedKeys expectedKeys) {
+        String command = DeviceJsonMessageFactory.pullSensorData();
+        DevicePollEngine.Framing framing = device.getTelemetryProtocol() == Device.TelemetryProtocol.BINARY_V1
+                ? DevicePollEngine.Framing.LENGTH_PREFIXED
+                : DevicePollEngine.Framing.LINE;
 
-                if (sensorDataJson == null || sensorDataJson.isEmpty()) {
-                    throw new Exception("Received empty sensor data from device ID: " + device.getDeviceID());
+        return deviceRuntimeRegistry.submit(device.getDeviceID(), () -> devicePollEngine.submit(device.getDeviceIp(), command, framing,
+                (buffer, length) -> decodeFrame(device, buffer, length, expectedKeys)));
+    }
+
+    // Settles the breaker claim taken before requestFrame and turns a failure into the message callers expect
+    private TelemetryFrameReader.Frame checkFrame(Device device, TelemetryFrameReader.Frame frame, Throwable throwable) throws Exception {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+
+        if (throwable instanceof IOException) {
+            deviceCircuitBreaker.onFailure(device.getDeviceID());
+        } else {
+            // The device answered; a malformed frame is not a reachability problem
+            deviceCircuitBreaker.onSuccess(device.getDeviceID());
+        }
+
+        if (throwable instanceof SocketTimeoutException) {
+            throw new Exception("Timeout: No response from device ID " + device.getDeviceID() + ": " + throwable.getMessage());
+        }
+        if (throwable instanceof IllegalArgumentException) {
+            throw new Exception(invalidFrameMessage(device, throwable));
+        }
+        if (throwable instanceof IOException) {
+            throw new Exception("Error communicating with device ID " + device.getDeviceID() + ": " + throwable.getMessage());
+        }
+        if (throwable != null) {
+            throw throwable instanceof Exception ? (Exception) throwable : new Exception(throwable);
+        }
+        return frame;
+    }
+
+    /**
+     * Scatter-gather read: queries every device at once and waits at most timeoutMs in total.
+     * A device whose latest reading is at most maxAgeMs old is answered from memory instead.
+     * Results keep the order of deviceIDs; devices that failed or missed the deadline are
+     * reported with their status rather than failing the whole read.
+     */
+    public List<DeviceReadingDTO> fetchSensorDataValues(List<Integer> deviceIDs, long timeoutMs, long maxAgeMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Map<Integer, DeviceReadingDTO> results = new LinkedHashMap<>();
+        Map<Integer, CompletableFuture<List<SensorDataDTO>>> liveReads = new LinkedHashMap<>();
+
+        for (int deviceID : deviceIDs) {
+            RecentReadingsService.DeviceReading cached = maxAgeMs > 0 ? recentReadingsService.getLatestReading(deviceID, maxAgeMs) : null;
+            if (cached != null) {
+                results.put(deviceID, new DeviceReadingDTO(deviceID, DeviceReadingDTO.Status.CACHED, cached.timestamp(), cached.readings(), null));
+                continue;
+            }
+
+            results.put(deviceID, null);
+            liveReads.put(deviceID, fetchSensorDataAsync(deviceID).thenApply(sensorDataList -> {
+                List<SensorDataDTO> readings = new ArrayList<>(sensorDataList.size());
+                for (SensorData sensorData : sensorDataList) {
+                    readings.add(new SensorDataDTO(sensorData.getDataType(), sensorData.getDataValue()));
                 }
+                // Recorded even when it arrives after the deadline, for the next caller
+                recentReadingsService.recordLatest(deviceID, System.currentTimeMillis(), readings);
+                return readings;
+            }));
+        }
 
-                return parser.parse(sensorDataJson, device);
+        try {
+            CompletableFuture.allOf(liveReads.values().toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Reported per device below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
 
-            } catch (IOException e) {
-                throw new Exception("Error communicating with device ID " + device.getDeviceID() + ": " + e.getMessage());
+        long now = System.currentTimeMillis();
+        liveReads.forEach((deviceID, read) -> {
+            if (!read.isDone()) {
+                results.put(deviceID, new DeviceReadingDTO(deviceID, DeviceReadingDTO.Status.TIMEOUT, now, List.of(),
+                        "No reply within " + timeoutMs + " ms."));
+                return;
             }
-        };
+            try {
+                results.put(deviceID, new DeviceReadingDTO(deviceID, DeviceReadingDTO.Status.LIVE, now, read.join(), null));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results.put(deviceID, new DeviceReadingDTO(deviceID, DeviceReadingDTO.Status.FAILED, now, List.of(), cause.getMessage()));
+            }
+        });
 
-        Future<List<T>> future = executorService.submit(fetchSensorDataTask);
+        return new ArrayList<>(results.values());
+    }
+
+    // Parses one frame a device pushed on its own schedule, in the telemetry protocol it negotiated at join time
+    public List<SensorData> parsePushedFrame(Device device, byte[] buffer, int length) throws Exception {
+        TelemetryFrameReader.ExpectedKeys expectedKeys = getExpectedKeys(device.getDeviceModel());
+        if (expectedKeys == null) {
+            logger.warn("No configuration found for sensor type: {}", device.getDeviceModel());
+            return new ArrayList<>();
+        }
 
+        TelemetryFrameReader.Frame frame;
         try {
-            return future.get(20, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            future.cancel(true);
-            throw new Exception("Timeout: No response from device within 10 seconds. Device ID: " + device.getDeviceID());
+            frame = decodeFrame(device, buffer, length, expectedKeys);
+        } catch (IllegalArgumentException e) {
+            throw new Exception(invalidFrameMessage(device, e));
         }
+        return buildReadings(frame, expectedKeys, device, this::createSensorData);
     }
 
     public List<SensorData> fetchSensorData(int deviceID) throws Exception {
-        return fetchSensorData(deviceID, this::parseAndValidateSensorData);
+        return fetchSensorData(deviceID, this::createSensorData);
     }
 
     public List<SensorDataDTO> fetchSensorDataValue(int deviceID) throws Exception {
-        return fetchSensorData(deviceID, this::parseAndValidateSensorDataValue);
+        return fetchSensorData(deviceID, (sensorDevice, dataType, dataValue) -> new SensorDataDTO(dataType, dataValue));
     }
 
-    private List<SensorData> parseAndValidateSensorData(String sensorDataJson, Device device) throws Exception {
-        return parseSensorData(sensorDataJson, device, (dataType, dataValue) -> {
-            SensorData sensorData = new SensorData();
-            sensorData.setDataType(dataType);
-            sensorData.setDataValue(dataValue);
-            sensorData.setDevice(device);
-            sensorData.setField(device.getField());
-            return sensorData;
-        });
+    private SensorData createSensorData(Device device, String dataType, double dataValue) {
+        SensorData sensorData = new SensorData();
+        sensorData.setDataType(dataType);
+        sensorData.setDataValue(dataValue);
+        sensorData.setDevice(device);
+        sensorData.setField(device.getField());
+        return sensorData;
+    }
+
+    // Binary frames are bound to the schema negotiated at join time, anything else is read as JSON
+    private TelemetryFrameReader.Frame decodeFrame(Device device, byte[] buffer, int length,
+                                                   TelemetryFrameReader.ExpectedKeys expectedKeys) throws Exception {
+        if (length == 0) {
+            throw new Exception("Received empty sensor data from device ID: " + device.getDeviceID());
+        }
+
+        if (device.getTelemetryProtocol() == Device.TelemetryProtocol.BINARY_V1) {
+            Integer schemaId = sensorConfigService.getSchemaIdForSensorType(device.getDeviceModel());
+            if (schemaId == null) {
+                throw new Exception("No binary schema configured for sensor type: " + device.getDeviceModel());
+            }
+            return BinaryTelemetryFrame.read(buffer, length, schemaId, expectedKeys);
+        }
+        return TelemetryFrameReader.read(buffer, 0, length, expectedKeys);
     }
 
-    private List<SensorDataDTO> parseAndValidateSensorDataValue(String sensorDataJson, Device device) throws Exception {
-        return parseSensorData(sensorDataJson, device, SensorDataDTO::new);
+    private String circuitOpenMessage(Device device) {
+        long remainingMs = deviceCircuitBreaker.getRemainingBackoffMs(device.getDeviceID());
+        if (remainingMs == 0) {
+            return "Device ID " + device.getDeviceID() + " is unreachable, a reconnect attempt is in progress.";
+        }
+        return "Device ID " + device.getDeviceID() + " is unreachable, next attempt in " + (remainingMs + 999) / 1000 + " seconds.";
     }
 
-    private <T> List<T> parseSensorData(String sensorDataJson, Device device, DataFactory<T> factory) throws Exception {
-        List<T> sensorDataList = new ArrayList<>();
+    private String invalidFrameMessage(Device device, Throwable cause) {
+        String format = device.getTelemetryProtocol() == Device.TelemetryProtocol.BINARY_V1 ? "binary telemetry" : "JSON";
+        return "Invalid " + format + " format received from device ID " + device.getDeviceID() + ": " + cause.getMessage();
+    }
 
-        try {
-            JsonObject jsonObject = JsonParser.parseString(sensorDataJson).getAsJsonObject();
-            String sensorModel = device.getDeviceModel();
-            List<String> expectedDataTypes = sensorConfigService.getExpectedDataTypesForSensorType(sensorModel);
+    private <T> List<T> buildReadings(TelemetryFrameReader.Frame frame, TelemetryFrameReader.ExpectedKeys expectedKeys,
+                                      Device device, DataFactory<T> factory) {
+        List<T> sensorDataList = new ArrayList<>(expectedKeys.size());
 
-            if (expectedDataTypes == null) {
-                logger.warn("No configuration found for sensor type: {}", sensorModel);
-                return sensorDataList;
-            }
+        for (int i = 0; i < expectedKeys.size(); i++) {
+            String expectedDataType = expectedKeys.dataType(i);
 
-            for (String expectedDataType : expectedDataTypes) {
-                if (jsonObject.has(expectedDataType)) {
-                    JsonElement jsonElement = jsonObject.get(expectedDataType);
-                    BigDecimal dataValue;
-
-                    if (jsonElement.isJsonPrimitive() && jsonElement.getAsJsonPrimitive().isNumber()) {
-                        dataValue = jsonElement.getAsBigDecimal();
-                    } else {
-                        logger.warn("Data value for '{}' is not a valid number. Device ID: {}", expectedDataType, device.getDeviceID());
-                        continue;
-                    }
-
-                    T sensorData = factory.create(expectedDataType, dataValue);
-                    sensorDataList.add(sensorData);
-                } else {
-                    logger.warn("Expected data type '{}' not found in sensor data from device ID {}.", expectedDataType, device.getDeviceID());
-                }
+            if (frame.isPresent(i)) {
+                sensorDataList.add(factory.create(device, expectedDataType, frame.value(i)));
+            } else if (frame.isInvalid(i)) {
+                logger.warn("Data value for '{}' is not a valid number. Device ID: {}", expectedDataType, device.getDeviceID());
+            } else {
+                logger.warn("Expected data type '{}' not found in sensor data from device ID {}.", expectedDataType, device.getDeviceID());
             }
-
-        } catch (JsonSyntaxException e) {
-            throw new Exception("Invalid JSON format received from device ID " + device.getDeviceID() + ": " + e.getMessage());
         }
 
         return sensorDataList;
     }
 
-    public Optional<BigDecimal> getDataValueByType(List<SensorDataDTO> sensorDataList, String dataType) {
+    // Key bytes are encoded once per sensor model and reused for every frame
+    private TelemetryFrameReader.ExpectedKeys getExpectedKeys(String sensorModel) {
+        TelemetryFrameReader.ExpectedKeys expectedKeys = expectedKeysByModel.get(sensorModel);
+        if (expectedKeys == null) {
+            List<String> expectedDataTypes = sensorConfigService.getExpectedDataTypesForSensorType(sensorModel);
+            if (expectedDataTypes == null) {
+                return null;
+            }
+            expectedKeys = new TelemetryFrameReader.ExpectedKeys(expectedDataTypes);
+            expectedKeysByModel.put(sensorModel, expectedKeys);
+        }
+        return expectedKeys;
+    }
+
+    public OptionalDouble getDataValueByType(List<SensorDataDTO> sensorDataList, String dataType) {
         return sensorDataList.stream()
                 .filter(sensorDataDTO -> sensorDataDTO.getDataType().equals(dataType))
-                .map(SensorDataDTO::getDataValue)
+                .mapToDouble(SensorDataDTO::getDataValue)
                 .findFirst();
     }
 
-    @FunctionalInterface
-    private interface DataParser<T> {
-        List<T> parse(String json, Device device) throws Exception;
-    }
-
     @FunctionalInterface
     private interface DataFactory<T> {
-        T create(String dataType, BigDecimal dataValue);
+        T create(Device device, String dataType, double dataValue);
     }
 }
@@ -0,0 +1,395 @@
+package io.mertkaniscan.automation_engine.services.irrigation_services;
+
+import io.mertkaniscan.automation_engine.components.TimerWheelScheduler;
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.models.Device;
+import io.mertkaniscan.automation_engine.services.device_services.ActuatorCommandSocketService;
+import io.mertkaniscan.automation_engine.services.main_services.DeviceService;
+import io.mertkaniscan.automation_engine.utils.CalibrationCurve;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Opens the valves of one or more fields as a single batch. Every valve is resolved and
+ * calibrated before any command is sent, then all valves are opened concurrently through
+ * the poll engine, each retried on its own. If any valve still fails to open, the whole
+ * batch is compensated by closing every valve in it. Open batches are closed by one
+ * timer per zone on the shared timer wheel. A close timer and stop() claim each valve by
+ * compare-and-set on its state, so every valve is closed exactly once.
+ */
+@Service
+public class IrrigationDispatcher {
+
+    private static final Logger logger = LogManager.getLogger(IrrigationDispatcher.class);
+
+    private static final int CLOSED_DEGREE = 0;
+
+    private final DeviceService deviceService;
+    private final ActuatorCommandSocketService actuatorCommandSocketService;
+    private final TimerWheelScheduler timerWheelScheduler;
+    private final DeviceProperties deviceProperties;
+
+    private final AtomicInteger batchSequence = new AtomicInteger();
+    private final Map<Integer, Batch> activeBatches = new ConcurrentHashMap<>();
+
+    public IrrigationDispatcher(DeviceService deviceService, ActuatorCommandSocketService actuatorCommandSocketService,
+                                TimerWheelScheduler timerWheelScheduler, DeviceProperties deviceProperties) {
+        this.deviceService = deviceService;
+        this.actuatorCommandSocketService = actuatorCommandSocketService;
+        this.timerWheelScheduler = timerWheelScheduler;
+        this.deviceProperties = deviceProperties;
+    }
+
+    public record Zone(int fieldID, double flowRate, long durationMs) {
+    }
+
+    public enum BatchState {
+        OPENING,
+        OPEN,
+        CLOSED,
+        // Closed by stop() before the end of its duration
+        STOPPED,
+        // A valve failed to open and every valve of the batch was closed again
+        COMPENSATED
+    }
+
+    public enum ValveState {
+        PENDING,
+        OPEN,
+        OPEN_FAILED,
+        // Claimed by a close timer or stop(), the close command is in flight
+        CLOSING,
+        CLOSED,
+        // The close command failed on every attempt, the valve may still be open
+        CLOSE_FAILED
+    }
+
+    public static final class Valve {
+        private static final AtomicReferenceFieldUpdater<Valve, ValveState> STATE =
+                AtomicReferenceFieldUpdater.newUpdater(Valve.class, ValveState.class, "state");
+
+        private final int deviceID;
+        private final int fieldID;
+        private final int degree;
+        private final double flowRate;
+        private final long durationMs;
+        private volatile ValveState state = ValveState.PENDING;
+        private volatile String error;
+        // When the open and the close command were acknowledged, 0 until then
+        private volatile long openedAt;
+        private volatile long closedAt;
+
+        private Valve(int deviceID, int fieldID, int degree, double flowRate, long durationMs) {
+            this.deviceID = deviceID;
+            this.fieldID = fieldID;
+            this.degree = degree;
+            this.flowRate = flowRate;
+            this.durationMs = durationMs;
+        }
+
+        public int getDeviceID() {
+            return deviceID;
+        }
+
+        public int getFieldID() {
+            return fieldID;
+        }
+
+        public int getDegree() {
+            return degree;
+        }
+
+        public ValveState getState() {
+            return state;
+        }
+
+        private boolean claimForClose() {
+            return STATE.compareAndSet(this, ValveState.OPEN, ValveState.CLOSING);
+        }
+
+        private boolean isSettled() {
+            ValveState current = state;
+            return current != ValveState.PENDING && current != ValveState.OPEN && current != ValveState.CLOSING;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getOpenedAt() {
+            return openedAt;
+        }
+
+        public long getClosedAt() {
+            return closedAt;
+        }
+
+        /**
+         * Litres delivered by this valve between the acknowledged open and close. A CLOSE_FAILED
+         * valve is counted up to its last close attempt, so its amount is a lower bound.
+         */
+        public double getAppliedLitres() {
+            long opened = openedAt;
+            long closed = closedAt;
+            if (opened == 0 || closed < opened) {
+                return 0;
+            }
+            return flowRate * (closed - opened) / TimeUnit.HOURS.toMillis(1);
+        }
+    }
+
+    public static final class Batch {
+        private final int batchID;
+        private final List<Valve> valves;
+        private final List<TimerWheelScheduler.Timer> closeTimers = new ArrayList<>();
+        private final CompletableFuture<Batch> closed = new CompletableFuture<>();
+        // Close calls still waiting on their commands; the batch completes only once this is zero
+        private final AtomicInteger closesInFlight = new AtomicInteger();
+        private volatile BatchState state = BatchState.OPENING;
+        // The state the batch ends in once every valve is settled
+        private volatile BatchState finalState = BatchState.CLOSED;
+
+        private Batch(int batchID, List<Valve> valves) {
+            this.batchID = batchID;
+            this.valves = valves;
+        }
+
+        public int getBatchID() {
+            return batchID;
+        }
+
+        public BatchState getState() {
+            return state;
+        }
+
+        public List<Valve> getValves() {
+            return valves;
+        }
+
+        // Completes once every valve of the batch has been sent its close command
+        public CompletableFuture<Batch> closedFuture() {
+            return closed;
+        }
+    }
+
+    /**
+     * Opens all valves of the zones at once. Fails synchronously, before any valve moves, when
+     * a zone has no actuators or a flow rate is not calibrated; otherwise completes with the
+     * batch once it is OPEN or COMPENSATED.
+     */
+    public CompletableFuture<Batch> dispatch(List<Zone> zones) throws Exception {
+        Batch batch = new Batch(batchSequence.incrementAndGet(), plan(zones));
+        activeBatches.put(batch.batchID, batch);
+
+        logger.info("Opening {} valves in {} fields as batch {}.", batch.valves.size(), zones.size(), batch.batchID);
+
+        List<CompletableFuture<?>> opens = new ArrayList<>(batch.valves.size());
+        for (Valve valve : batch.valves) {
+            opens.add(sendWithRetry(valve.deviceID, valve.degree, 1).handle((response, throwable) -> {
+                if (throwable != null) {
+                    valve.state = ValveState.OPEN_FAILED;
+                    valve.error = rootMessage(throwable);
+                } else {
+                    valve.openedAt = System.currentTimeMillis();
+                    valve.state = ValveState.OPEN;
+                }
+                return null;
+            }));
+        }
+
+        return CompletableFuture.allOf(opens.toArray(new CompletableFuture<?>[0])).thenCompose(ignored -> {
+            if (batch.valves.stream().allMatch(valve -> valve.state == ValveState.OPEN)) {
+                batch.state = BatchState.OPEN;
+                scheduleCloseTimers(batch);
+                return CompletableFuture.completedFuture(batch);
+            }
+
+            logger.warn("Batch {}: {} valves failed to open, closing all valves of the batch.", batch.batchID,
+                    batch.valves.stream().filter(valve -> valve.state == ValveState.OPEN_FAILED).count());
+            // A timed out open may still have reached the valve, so every valve is closed, not only the opened ones
+            batch.finalState = BatchState.COMPENSATED;
+            List<Valve> toClose = new ArrayList<>(batch.valves.size());
+            for (Valve valve : batch.valves) {
+                if (valve.state == ValveState.OPEN_FAILED || valve.claimForClose()) {
+                    toClose.add(valve);
+                }
+            }
+            return close(batch, toClose).thenCompose(compensated -> compensated.closed);
+        });
+    }
+
+    // Closes every valve of the batch now instead of at the end of its duration
+    public boolean stop(int batchID) {
+        Batch batch = activeBatches.get(batchID);
+        if (batch == null || batch.state != BatchState.OPEN) {
+            return false;
+        }
+        synchronized (batch.closeTimers) {
+            batch.closeTimers.forEach(timerWheelScheduler::cancel);
+        }
+
+        // Valves whose timer already fired are closing or closed and keep their own close time
+        List<Valve> claimed = claimForClose(batch.valves);
+        if (claimed.isEmpty()) {
+            return false;
+        }
+        batch.finalState = BatchState.STOPPED;
+        close(batch, claimed);
+        return true;
+    }
+
+    public Collection<Batch> getActiveBatches() {
+        return activeBatches.values();
+    }
+
+    private List<Valve> plan(List<Zone> zones) throws Exception {
+        List<Valve> valves = new ArrayList<>();
+
+        for (Zone zone : zones) {
+            List<Device> actuators = deviceService.getDevicesByFieldID(zone.fieldID()).stream()
+                    .filter(Device::isActuator)
+                    .toList();
+
+            if (actuators.isEmpty()) {
+                throw new Exception("No actuators found for field ID: " + zone.fieldID());
+            }
+
+            for (Device actuator : actuators) {
+                CalibrationCurve calibrationCurve = actuator.getCalibrationCurve();
+
+                if (calibrationCurve.isEmpty()) {
+                    throw new Exception("Calibration map is missing or empty for actuator ID: " + actuator.getDeviceID());
+                }
+
+                // Interpolated between the nearest calibrated flow rates
+                double degree = calibrationCurve.degreeForFlow(zone.flowRate());
+                if (Double.isNaN(degree)) {
+                    throw new Exception("Flow rate " + zone.flowRate() + " is outside the calibrated range of actuator ID: " + actuator.getDeviceID());
+                }
+
+                valves.add(new Valve(actuator.getDeviceID(), zone.fieldID(), (int) Math.round(degree), zone.flowRate(),
+                        zone.durationMs()));
+            }
+        }
+        return valves;
+    }
+
+    private void scheduleCloseTimers(Batch batch) {
+        Map<Long, List<Valve>> valvesByDuration = new TreeMap<>();
+        for (Valve valve : batch.valves) {
+            valvesByDuration.computeIfAbsent(valve.durationMs, duration -> new ArrayList<>()).add(valve);
+        }
+
+        synchronized (batch.closeTimers) {
+            valvesByDuration.forEach((durationMs, valves) -> {
+                // stop() may have claimed some of the group's valves already
+                Runnable closeGroup = () -> close(batch, claimForClose(valves));
+                try {
+                    batch.closeTimers.add(timerWheelScheduler.schedule(closeGroup, durationMs, TimeUnit.MILLISECONDS));
+                } catch (RejectedExecutionException e) {
+                    // Never leave a valve open without a timer to close it
+                    logger.error("Batch {}: could not schedule close timer, closing {} valves now.", batch.batchID, valves.size());
+                    closeGroup.run();
+                }
+            });
+        }
+    }
+
+    private static List<Valve> claimForClose(List<Valve> valves) {
+        List<Valve> claimed = new ArrayList<>(valves.size());
+        for (Valve valve : valves) {
+            if (valve.claimForClose()) {
+                claimed.add(valve);
+            }
+        }
+        return claimed;
+    }
+
+    // Sends the close command to valves the caller has claimed, then completes the batch once every valve is settled
+    private CompletableFuture<Batch> close(Batch batch, List<Valve> valves) {
+        batch.closesInFlight.incrementAndGet();
+
+        List<CompletableFuture<?>> closes = new ArrayList<>(valves.size());
+        for (Valve valve : valves) {
+            closes.add(sendWithRetry(valve.deviceID, CLOSED_DEGREE, 1).handle((response, throwable) -> {
+                if (valve.openedAt != 0 && valve.closedAt == 0) {
+                    valve.closedAt = System.currentTimeMillis();
+                }
+                if (throwable != null) {
+                    valve.state = ValveState.CLOSE_FAILED;
+                    valve.error = rootMessage(throwable);
+                    logger.error("Batch {}: could not close actuator ID {}, valve may still be open: {}",
+                            batch.batchID, valve.deviceID, valve.error);
+                } else if (valve.state != ValveState.OPEN_FAILED) {
+                    valve.state = ValveState.CLOSED;
+                }
+                return null;
+            }));
+        }
+
+        return CompletableFuture.allOf(closes.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            if (batch.closesInFlight.decrementAndGet() == 0
+                    && batch.valves.stream().allMatch(Valve::isSettled)
+                    && activeBatches.remove(batch.batchID, batch)) {
+                batch.state = batch.finalState;
+                batch.closed.complete(batch);
+                logger.info("Batch {} {}.", batch.batchID, batch.finalState.name().toLowerCase());
+            }
+            return batch;
+        });
+    }
+
+    private CompletableFuture<String> sendWithRetry(int deviceID, int degree, int attempt) {
+        DeviceProperties.Actuation actuation = deviceProperties.getActuation();
+
+        return actuatorCommandSocketService.sendActuatorCommandAsync(deviceID, degree)
+                .handle((response, throwable) -> {
+                    if (throwable == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    if (attempt >= actuation.getMaxAttempts()) {
+                        return CompletableFuture.<String>failedFuture(throwable);
+                    }
+
+                    logger.warn("Command to actuator ID {} failed (attempt {} of {}), retrying: {}",
+                            deviceID, attempt, actuation.getMaxAttempts(), rootMessage(throwable));
+                    CompletableFuture<String> retry = new CompletableFuture<>();
+                    try {
+                        timerWheelScheduler.schedule(() -> sendWithRetry(deviceID, degree, attempt + 1).whenComplete((value, failure) -> {
+                            if (failure != null) {
+                                retry.completeExceptionally(failure);
+                            } else {
+                                retry.complete(value);
+                            }
+                        }), actuation.getRetryBackoffMs() * attempt, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // Without a retry timer the batch would wait in OPENING forever
+                        retry.completeExceptionally(throwable);
+                    }
+                    return retry;
+                })
+                .thenCompose(future -> future);
+    }
+
+    private static String rootMessage(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
@@ -1,41 +1,63 @@
 package io.mertkaniscan.automation_engine.services.irrigation_services;
 
+import io.mertkaniscan.automation_engine.components.ScheduledSensorDataFetcher;
+import io.mertkaniscan.automation_engine.components.TimerWheelScheduler;
 import io.mertkaniscan.automation_engine.models.IrrigationRequest;
 import io.mertkaniscan.automation_engine.repositories.IrrigationRepository;
-import io.mertkaniscan.automation_engine.services.device_services.ActuatorCommandSocketService;
+import io.mertkaniscan.automation_engine.services.logic.WaterBalanceService;
 import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import java.util.Set;
 
 import java.time.Duration;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class IrrigationService {
 
-    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    private static final Logger logger = LogManager.getLogger(IrrigationService.class);
 
     @Autowired
     private IrrigationRepository irrigationRepository;
 
     @Autowired
-    private ActuatorCommandSocketService actuatorCommandSocketService;
+    private IrrigationDispatcher irrigationDispatcher;
+
+    @Autowired
+    private TimerWheelScheduler timerWheelScheduler;
+
+    @Autowired
+    private WaterBalanceService waterBalanceService;
 
-    private final Map<Integer, ScheduledFuture<?>> irrigationTasks = new ConcurrentHashMap<>();
+    @Autowired
+    @Lazy
+    private ScheduledSensorDataFetcher scheduledSensorDataFetcher;
+
+    // Batch callbacks write to the database here, off the poll engine's selector thread
+    @Autowired
+    @Qualifier("deviceIoExecutor")
+    private ExecutorService deviceIoExecutor;
+
+    private final Map<Integer, TimerWheelScheduler.Timer> irrigationTasks = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
-        taskScheduler.setPoolSize(10);
-        taskScheduler.initialize();
         initializePendingTasks();
     }
 
@@ -64,39 +86,116 @@ public class IrrigationService {
         Duration delay = Duration.between(now, request.getStartTime());
 
         if (!delay.isNegative() && !delay.isZero()) {
-            ScheduledFuture<?> task = taskScheduler.schedule(() -> startIrrigation(request), Instant.ofEpochSecond(delay.toMillis()));
+            TimerWheelScheduler.Timer task = timerWheelScheduler.schedule(() -> startIrrigation(request), delay.toMillis(), TimeUnit.MILLISECONDS);
             irrigationTasks.put(request.getId(), task);
         } else {
             startIrrigation(request);
         }
     }
 
-    public void startIrrigation(IrrigationRequest request) {
+    public CompletableFuture<IrrigationDispatcher.Batch> startIrrigation(IrrigationRequest request) {
+        return startIrrigation(List.of(request));
+    }
+
+    // Starts the requests as one batch: either every valve of every field opens, or none stays open
+    public CompletableFuture<IrrigationDispatcher.Batch> startIrrigation(List<IrrigationRequest> requests) {
+        List<IrrigationDispatcher.Zone> zones = new ArrayList<>(requests.size());
+        for (IrrigationRequest request : requests) {
+            irrigationTasks.remove(request.getId());
+            zones.add(new IrrigationDispatcher.Zone(request.getField().getFieldID(), request.getFlowRate(),
+                    TimeUnit.MINUTES.toMillis(request.getDuration())));
+        }
+
+        CompletableFuture<IrrigationDispatcher.Batch> opened;
         try {
-            int duration = request.getDuration();
-            int fieldId = request.getField().getFieldID();
-            double flowRate = request.getFlowRate();
+            opened = irrigationDispatcher.dispatch(zones);
+        } catch (Exception e) {
+            updateStatus(requests, IrrigationRequest.IrrigationStatus.FAILED);
+            logger.error("Failed to start irrigation: {}", e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
 
-            actuatorCommandSocketService.startIrrigation(fieldId, flowRate, duration);
+        return opened.whenCompleteAsync((batch, throwable) -> {
+            if (throwable != null || batch.getState() != IrrigationDispatcher.BatchState.OPEN) {
+                updateStatusSafely(requests, IrrigationRequest.IrrigationStatus.FAILED);
+                logger.error("Failed to start irrigation, valves of the batch were closed again.");
+                return;
+            }
 
-            request.setStatus(IrrigationRequest.IrrigationStatus.COMPLETED);
-            irrigationRepository.save(request);
+            // Registered before any write, so a failed write cannot leave the open valves without a final status
+            batch.closedFuture().thenAcceptAsync(closed -> onBatchClosed(requests, closed), deviceIoExecutor);
 
-            irrigationTasks.remove(request.getId());
-            System.out.println("Irrigation started for field " + fieldId);
+            updateStatusSafely(requests, IrrigationRequest.IrrigationStatus.IN_PROGRESS);
+            for (IrrigationRequest request : requests) {
+                // Poll the field closely until its valves close
+                scheduledSensorDataFetcher.onIrrigationStarted(request.getField().getFieldID(),
+                        TimeUnit.MINUTES.toMillis(request.getDuration()));
+                logger.info("Irrigation started for field {}", request.getField().getFieldID());
+            }
+        }, deviceIoExecutor);
+    }
+
+    private void onBatchClosed(List<IrrigationRequest> requests, IrrigationDispatcher.Batch closed) {
+        boolean closeFailed = closed.getValves().stream()
+                .anyMatch(valve -> valve.getState() == IrrigationDispatcher.ValveState.CLOSE_FAILED);
+
+        try {
+            recordAppliedWater(requests, closed);
         } catch (Exception e) {
-            request.setStatus(IrrigationRequest.IrrigationStatus.FAILED);
-            irrigationRepository.save(request);
+            logger.error("Failed to record the water applied by batch {}: {}", closed.getBatchID(), e.getMessage());
+        }
 
-            irrigationTasks.remove(request.getId());
-            System.err.println("Failed to start irrigation: " + e.getMessage());
+        if (closeFailed) {
+            // A valve may still be open, so neither the status nor the amount can be trusted
+            updateStatusSafely(requests, IrrigationRequest.IrrigationStatus.FAILED);
+            logger.error("Batch {} could not close every valve, irrigation marked as failed.", closed.getBatchID());
+        } else if (closed.getState() == IrrigationDispatcher.BatchState.STOPPED) {
+            updateStatusSafely(requests, IrrigationRequest.IrrigationStatus.CANCELLED);
+        } else {
+            updateStatusSafely(requests, IrrigationRequest.IrrigationStatus.COMPLETED);
+        }
+    }
+
+    // Each valve delivers its flow rate in L/h while open, and litres per m² of field area is mm of water
+    private void recordAppliedWater(List<IrrigationRequest> requests, IrrigationDispatcher.Batch batch) {
+        Map<Integer, Double> litresByField = new HashMap<>();
+        for (IrrigationDispatcher.Valve valve : batch.getValves()) {
+            litresByField.merge(valve.getFieldID(), valve.getAppliedLitres(), Double::sum);
+        }
+
+        Set<Integer> recorded = new HashSet<>();
+        for (IrrigationRequest request : requests) {
+            int fieldID = request.getField().getFieldID();
+            double totalArea = request.getField().getTotalArea();
+            double litres = litresByField.getOrDefault(fieldID, 0.0);
+            if (totalArea <= 0 || litres <= 0 || !recorded.add(fieldID)) {
+                continue;
+            }
+            waterBalanceService.recordIrrigation(fieldID, litres / totalArea);
+            logger.info("Recorded {} L of irrigation on field {}.", String.format("%.1f", litres), fieldID);
+        }
+    }
+
+    private void updateStatus(List<IrrigationRequest> requests, IrrigationRequest.IrrigationStatus status) {
+        for (IrrigationRequest request : requests) {
+            request.setStatus(status);
+        }
+        irrigationRepository.saveAll(requests);
+    }
+
+    // Used from batch callbacks, where an exception would be swallowed by the future
+    private void updateStatusSafely(List<IrrigationRequest> requests, IrrigationRequest.IrrigationStatus status) {
+        try {
+            updateStatus(requests, status);
+        } catch (Exception e) {
+            logger.error("Failed to mark {} irrigation requests as {}: {}", requests.size(), status, e.getMessage());
         }
     }
 
     public void cancelIrrigation(int requestId) {
-        ScheduledFuture<?> task = irrigationTasks.get(requestId);
+        TimerWheelScheduler.Timer task = irrigationTasks.get(requestId);
         if (task != null) {
-            task.cancel(false);
+            timerWheelScheduler.cancel(task);
             irrigationTasks.remove(requestId);
 
             IrrigationRequest request = irrigationRepository.findById(requestId).orElse(null);
@@ -139,7 +238,7 @@ public class IrrigationService {
 
         // Cancel the existing task if it exists
         if (irrigationTasks.containsKey(id)) {
-            irrigationTasks.get(id).cancel(false);
+            timerWheelScheduler.cancel(irrigationTasks.get(id));
             irrigationTasks.remove(id);
         }
 
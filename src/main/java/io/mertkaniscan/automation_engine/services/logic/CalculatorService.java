@@ -4,32 +4,30 @@ import io.mertkaniscan.automation_engine.models.Day;
 import io.mertkaniscan.automation_engine.models.DepletionData;
 import io.mertkaniscan.automation_engine.components.Calculators;
 import io.mertkaniscan.automation_engine.models.Plant;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Service
 public class CalculatorService {
 
-    private DepletionData depletionData;
+    private static final Logger logger = LogManager.getLogger(CalculatorService.class);
 
-    // Constructor initializes D to a default value
-    public CalculatorService() {
-        this.depletionData = new DepletionData(0, LocalDateTime.now());
-    }
-
-    // Method to calculate depletion based on FAO formula
-    public synchronized void calculateDepletion(double evapotranspiration, double rainfall) {
+    private final WaterBalanceService waterBalanceService;
 
-        double previousD = depletionData.getDepletion();
-
-        // FAO Depletion Formula: D = D_prev - Rainfall + ET
-        double newDepletion = Math.max(0, previousD - rainfall + evapotranspiration);
+    public CalculatorService(WaterBalanceService waterBalanceService) {
+        this.waterBalanceService = waterBalanceService;
+    }
 
-        depletionData.setDepletion(newDepletion);
-        depletionData.setLastUpdated(LocalDateTime.now());
+    // Method to calculate depletion based on FAO formula: D = D_prev - Rainfall + ET, kept per field
+    public void calculateDepletion(int fieldID, double evapotranspiration, double rainfall) {
+        WaterBalanceService.Balance balance = waterBalanceService.update(fieldID, evapotranspiration, 0, rainfall, 0);
 
-        System.out.println("Depletion updated: D = " + newDepletion);
+        logger.debug("Depletion of field {} updated: D = {}", fieldID, balance.rootZoneDepletion());
     }
 
     // Method to calculate Reference ETo
@@ -44,9 +42,11 @@ public class CalculatorService {
         return Calculators.calculateETo(temperature, humidity, pressure, ghi, dni, dhi, windSpeed, Rn, 0, es, ea, delta, gamma);
     }
 
-    // Method to retrieve the latest depletion value
-    public DepletionData getDepletionData() {
-        return this.depletionData;
+    // Method to retrieve the latest depletion value of the field
+    public DepletionData getDepletionData(int fieldID) {
+        WaterBalanceService.Snapshot snapshot = waterBalanceService.getSnapshot(fieldID);
+        return new DepletionData(snapshot.rootZoneDepletion(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.updatedAt()), ZoneId.systemDefault()));
     }
 
     // Method to calculate Ke (Evaporation Coefficient)
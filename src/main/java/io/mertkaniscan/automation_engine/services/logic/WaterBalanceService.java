@@ -0,0 +1,238 @@
+package io.mertkaniscan.automation_engine.services.logic;
+
+import io.mertkaniscan.automation_engine.components.Calculators;
+import io.mertkaniscan.automation_engine.models.Field;
+import io.mertkaniscan.automation_engine.models.Plant;
+import io.mertkaniscan.automation_engine.models.WaterBalanceCheckpoint;
+import io.mertkaniscan.automation_engine.repositories.FieldRepository;
+import io.mertkaniscan.automation_engine.repositories.WaterBalanceCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-field FAO-56 water balance of the root zone (Dr) and the evaporative surface layer
+ * (De), both in mm of depletion. Each ET, rain or irrigation event is applied in O(1) by
+ * compare-and-set on the field's immutable state, so updates to different fields never
+ * contend and updates to the same field never block. Only checkpoints are persisted: fields
+ * that changed since the last checkpoint are written in one batch every
+ * water-balance.checkpoint-interval-ms and on shutdown, and restored at startup.
+ */
+@Service
+public class WaterBalanceService {
+
+    private static final Logger logger = LogManager.getLogger(WaterBalanceService.class);
+
+    // Depth of the surface layer that dries by evaporation (FAO-56 Ze, 0.10-0.15 m), in mm
+    private static final double EVAPORATION_LAYER_DEPTH_MM = 100;
+
+    private final FieldRepository fieldRepository;
+    private final WaterBalanceCheckpointRepository checkpointRepository;
+    private final Map<Integer, FieldBalance> balances = new ConcurrentHashMap<>();
+
+    public WaterBalanceService(FieldRepository fieldRepository, WaterBalanceCheckpointRepository checkpointRepository) {
+        this.fieldRepository = fieldRepository;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    // Total and readily available water of the root zone and total evaporable water, in mm
+    public record Parameters(double TAW, double RAW, double TEW) {
+    }
+
+    public record Balance(double rootZoneDepletion, double evaporativeDepletion, long updatedAt, long sequence) {
+    }
+
+    public record Snapshot(int fieldID, double rootZoneDepletion, double evaporativeDepletion, double TAW, double RAW,
+                           double TEW, long updatedAt, boolean irrigationDue) {
+    }
+
+    private static final class FieldBalance {
+        private final int fieldID;
+        private final AtomicReference<Balance> state;
+        private volatile Parameters parameters;
+        // Sequence of the last persisted checkpoint, only touched by checkpoint()
+        private long checkpointedSequence;
+
+        private FieldBalance(int fieldID, Parameters parameters, Balance balance) {
+            this.fieldID = fieldID;
+            this.parameters = parameters;
+            this.state = new AtomicReference<>(balance);
+            this.checkpointedSequence = balance.sequence();
+        }
+
+        private Snapshot snapshot() {
+            Balance balance = state.get();
+            Parameters current = parameters;
+            return new Snapshot(fieldID, balance.rootZoneDepletion(), balance.evaporativeDepletion(), current.TAW(),
+                    current.RAW(), current.TEW(), balance.updatedAt(),
+                    current.TAW() > 0 && balance.rootZoneDepletion() >= current.RAW());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Map<Integer, WaterBalanceCheckpoint> checkpoints = new HashMap<>();
+        for (WaterBalanceCheckpoint checkpoint : checkpointRepository.findAll()) {
+            checkpoints.put(checkpoint.getFieldID(), checkpoint);
+        }
+
+        for (Field field : fieldRepository.findAll()) {
+            balances.put(field.getFieldID(), newBalance(field, checkpoints.get(field.getFieldID())));
+        }
+        logger.info("Restored water balance of {} fields from {} checkpoints.", balances.size(), checkpoints.size());
+    }
+
+    public Balance recordEvapotranspiration(int fieldID, double etc, double evaporation) {
+        return update(fieldID, etc, evaporation, 0, 0);
+    }
+
+    public Balance recordRain(int fieldID, double rainfall) {
+        return update(fieldID, 0, 0, rainfall, 0);
+    }
+
+    public Balance recordIrrigation(int fieldID, double irrigation) {
+        return update(fieldID, 0, 0, 0, irrigation);
+    }
+
+    /**
+     * Applies one event to the field, all amounts in mm: crop evapotranspiration and soil
+     * evaporation deplete, rain and irrigation refill. Water beyond field capacity is treated
+     * as deep percolation, so depletion never goes below zero; the root zone cannot dry past
+     * TAW nor the surface layer past TEW.
+     */
+    public Balance update(int fieldID, double etc, double evaporation, double rainfall, double irrigation) {
+        if (!(etc >= 0 && evaporation >= 0 && rainfall >= 0 && irrigation >= 0)) {
+            throw new IllegalArgumentException("Water balance amounts must be non-negative for field ID: " + fieldID);
+        }
+
+        FieldBalance fieldBalance = balance(fieldID);
+        Parameters parameters = fieldBalance.parameters;
+        long now = System.currentTimeMillis();
+
+        return fieldBalance.state.updateAndGet(previous -> new Balance(
+                // Same form as De: D = min(Dprev + ET - P - I, cap), floored at field capacity
+                Math.max(0, Calculators.calculateDe(previous.rootZoneDepletion(), rainfall, irrigation, etc, parameters.TAW())),
+                Math.max(0, Calculators.calculateDe(previous.evaporativeDepletion(), rainfall, irrigation, evaporation, parameters.TEW())),
+                now,
+                previous.sequence() + 1));
+    }
+
+    // Recomputes TAW, RAW and TEW after the soil or plant of the field changed, the depletion is kept
+    public void refreshParameters(Field field) {
+        FieldBalance fieldBalance = balances.get(field.getFieldID());
+        if (fieldBalance == null) {
+            balances.putIfAbsent(field.getFieldID(), newBalance(field, null));
+        } else {
+            fieldBalance.parameters = parameters(field);
+        }
+    }
+
+    // Synchronized with checkpoint() so a checkpoint in progress cannot write the field back
+    public synchronized void removeField(int fieldID) {
+        if (balances.remove(fieldID) != null && checkpointRepository.existsById(fieldID)) {
+            checkpointRepository.deleteById(fieldID);
+        }
+    }
+
+    public Snapshot getSnapshot(int fieldID) {
+        return balance(fieldID).snapshot();
+    }
+
+    // Fields whose root zone depletion has reached RAW, i.e. the crop is about to be water stressed
+    public List<Snapshot> getFieldsDueForIrrigation() {
+        List<Snapshot> due = new ArrayList<>();
+        for (FieldBalance fieldBalance : balances.values()) {
+            Snapshot snapshot = fieldBalance.snapshot();
+            if (snapshot.irrigationDue()) {
+                due.add(snapshot);
+            }
+        }
+        return due;
+    }
+
+    @Scheduled(fixedDelayString = "${water-balance.checkpoint-interval-ms:300000}")
+    public synchronized void checkpoint() {
+        List<FieldBalance> changed = new ArrayList<>();
+        List<WaterBalanceCheckpoint> checkpoints = new ArrayList<>();
+
+        for (FieldBalance fieldBalance : balances.values()) {
+            Balance balance = fieldBalance.state.get();
+            if (balance.sequence() != fieldBalance.checkpointedSequence) {
+                changed.add(fieldBalance);
+                checkpoints.add(new WaterBalanceCheckpoint(fieldBalance.fieldID, balance.rootZoneDepletion(),
+                        balance.evaporativeDepletion(), new Timestamp(balance.updatedAt()), balance.sequence()));
+            }
+        }
+
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+
+        try {
+            checkpointRepository.saveAll(checkpoints);
+        } catch (Exception e) {
+            // The balances stay dirty and are retried on the next checkpoint
+            logger.error("Failed to checkpoint water balance of {} fields: {}", checkpoints.size(), e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < changed.size(); i++) {
+            changed.get(i).checkpointedSequence = checkpoints.get(i).getSequence();
+        }
+        logger.debug("Checkpointed water balance of {} fields.", checkpoints.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+
+    private FieldBalance balance(int fieldID) {
+        FieldBalance fieldBalance = balances.get(fieldID);
+        if (fieldBalance != null) {
+            return fieldBalance;
+        }
+
+        // Field created after startup; loaded outside the map so other fields are not held up
+        Field field = fieldRepository.findById(fieldID)
+                .orElseThrow(() -> new IllegalArgumentException("Field with ID " + fieldID + " not found."));
+        FieldBalance created = newBalance(field, checkpointRepository.findById(fieldID).orElse(null));
+        FieldBalance existing = balances.putIfAbsent(fieldID, created);
+        return existing != null ? existing : created;
+    }
+
+    private static FieldBalance newBalance(Field field, WaterBalanceCheckpoint checkpoint) {
+        Balance balance = checkpoint == null
+                // A new field starts at field capacity
+                ? new Balance(0, 0, System.currentTimeMillis(), 0)
+                : new Balance(checkpoint.getRootZoneDepletion(), checkpoint.getEvaporativeDepletion(),
+                        checkpoint.getUpdatedAt().getTime(), checkpoint.getSequence());
+        return new FieldBalance(field.getFieldID(), parameters(field), balance);
+    }
+
+    private static Parameters parameters(Field field) {
+        double TEW = Calculators.calculateTEW(field.getFieldCapacity(), field.getWiltingPoint(), EVAPORATION_LAYER_DEPTH_MM);
+
+        Plant plant = field.getPlantInField();
+        if (plant == null) {
+            // Bare soil: only the surface layer is tracked, there is no root zone to irrigate
+            return new Parameters(0, 0, TEW);
+        }
+
+        // Root zone depth is kept in m, the balance in mm
+        double TAW = Calculators.calculateTAW(field.getFieldCapacity(), field.getWiltingPoint(), plant.getCurrentRootZoneDepth() * 1000);
+        double RAW = Calculators.calculateRAW(TAW, plant.getAllowableDepletion());
+        return new Parameters(TAW, RAW, TEW);
+    }
+}
@@ -5,39 +5,57 @@ import io.mertkaniscan.automation_engine.components.FetchInterval;
 import io.mertkaniscan.automation_engine.repositories.DeviceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Devices are kept in a write-through catalog keyed by deviceID, so the poll and command
+ * paths resolve a device without touching the database. Every write in this service
+ * refreshes the catalog with the saved entity; deletes evict it. Cached instances are
+ * shared by every caller and never modified in place: updates load the row, change and
+ * save that copy, then replace the cached entry.
+ */
 @Service
 public class DeviceService {
 
     @Autowired
     private DeviceRepository deviceRepository;
 
+    private final Map<Integer, Device> catalog = new ConcurrentHashMap<>();
+
     public Device saveDevice(Device device) {
         Device savedDevice = deviceRepository.save(device);
+        catalog.put(savedDevice.getDeviceID(), savedDevice);
         return savedDevice;
     }
 
     public Device updateDevice(int id, Device device) {
-
-        Device existingDevice = getDeviceById(id);
-
-        if (existingDevice != null) {
-
+        return modify(id, existingDevice -> {
             existingDevice.setDeviceModel(device.getDeviceModel());
             existingDevice.setDeviceIp(device.getDeviceIp());
             existingDevice.setDeviceStatus(device.getDeviceStatus());
             existingDevice.setField(device.getField());
+        });
+    }
 
-            return deviceRepository.save(existingDevice);
-        }
-        return null;
+    // One UPDATE for every device moving to the same status; the devices are reloaded on their next lookup
+    @Transactional
+    public int updateDeviceStatuses(Device.DeviceStatus deviceStatus, Collection<Integer> deviceIDs) {
+        int updated = deviceRepository.updateStatusByDeviceIDs(deviceStatus, deviceIDs);
+        catalog.keySet().removeAll(deviceIDs);
+        return updated;
     }
 
     public boolean deleteDevice(int id) {
+        catalog.remove(id);
         if (deviceRepository.existsById(id)) {
             deviceRepository.deleteById(id);
             return true;
@@ -45,44 +63,79 @@ public class DeviceService {
         return false;
     }
 
+    // Drops devices removed together with their field
+    public void evictDevicesOfField(int fieldID) {
+        catalog.values().removeIf(device -> device.getField() != null && device.getField().getFieldID() == fieldID);
+    }
+
     public Device getDeviceById(int deviceID) {
-        return deviceRepository.findById(deviceID).orElse(null);
+        Device device = catalog.get(deviceID);
+        if (device != null) {
+            return device;
+        }
+
+        device = deviceRepository.findById(deviceID).orElse(null);
+        if (device != null) {
+            Device cached = catalog.putIfAbsent(deviceID, device);
+            return cached != null ? cached : device;
+        }
+        return null;
     }
 
     public List<Device> getAllDevices() {
-        return deviceRepository.findAll();
+        List<Device> devices = deviceRepository.findAll();
+        Set<Integer> deviceIDs = new HashSet<>();
+        for (Device device : devices) {
+            catalog.put(device.getDeviceID(), device);
+            deviceIDs.add(device.getDeviceID());
+        }
+        catalog.keySet().retainAll(deviceIDs);
+        return devices;
     }
 
     public List<Device> getDevicesByFieldID(int fieldID) {
         return deviceRepository.findByFieldFieldID(fieldID);
     }
 
-    public void updateDeviceFetchInterval(int deviceID, FetchInterval fetchInterval) {
+    public Device updateDeviceFetchInterval(int deviceID, FetchInterval fetchInterval) {
+        return modify(deviceID, device -> device.setFetchInterval(fetchInterval));
+    }
 
-        Device device = deviceRepository.findById(deviceID).orElse(null);
+    public Device updateDeviceIp(int deviceID, String deviceIp) {
+        return modify(deviceID, device -> device.setDeviceIp(deviceIp));
+    }
 
-        if (device != null) {
-            device.setFetchInterval(fetchInterval);
-            deviceRepository.save(device);
-        }
+    public Device updateDeviceTelemetryProtocol(int deviceID, Device.TelemetryProtocol telemetryProtocol) {
+        return modify(deviceID, device -> device.setTelemetryProtocol(telemetryProtocol));
     }
 
     public void addCalibration(int deviceID, int degree, double flowRate) {
-        Device device = getDeviceById(deviceID);
+        Device device = modify(deviceID, loaded -> {
+            Map<Double, Integer> calibrationMap = loaded.getCalibrationMap() != null
+                    ? new HashMap<>(loaded.getCalibrationMap())
+                    : new HashMap<>();
+
+            calibrationMap.put(flowRate, degree);
+            loaded.setCalibrationMap(calibrationMap);
+        });
+
         if (device == null) {
             throw new IllegalArgumentException("Device not found with ID: " + deviceID);
         }
+    }
 
-        Map<Double, Integer> calibrationMap = device.getCalibrationMap();
-        if (calibrationMap == null) {
-            calibrationMap = new HashMap<>();
+    // Applies the change to a freshly loaded copy, so readers of the cached instance never see a half-applied update
+    private Device modify(int deviceID, Consumer<Device> change) {
+        Device device = deviceRepository.findById(deviceID).orElse(null);
+        if (device == null) {
+            catalog.remove(deviceID);
+            return null;
         }
 
-        calibrationMap.put(flowRate, degree);
-        device.setCalibrationMap(calibrationMap);
-
-        deviceRepository.save(device); // Save the updated device
+        change.accept(device);
+        Device savedDevice = deviceRepository.save(device);
+        catalog.put(savedDevice.getDeviceID(), savedDevice);
+        return savedDevice;
     }
 
-
 }
@@ -2,7 +2,9 @@ package io.mertkaniscan.automation_engine.services.main_services;
 
 import io.mertkaniscan.automation_engine.components.config_loader.ConfigLoader;
 import io.mertkaniscan.automation_engine.components.config_loader.FieldConfig;
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
 import io.mertkaniscan.automation_engine.models.*;
+import io.mertkaniscan.automation_engine.services.device_services.DeviceReadingDTO;
 import io.mertkaniscan.automation_engine.services.device_services.SensorDataDTO;
 import io.mertkaniscan.automation_engine.services.weather_forecast_services.SolarResponse;
 import io.mertkaniscan.automation_engine.services.weather_forecast_services.weather_response_obj.WeatherResponse;
@@ -10,12 +12,13 @@ import io.mertkaniscan.automation_engine.repositories.FieldRepository;
 import io.mertkaniscan.automation_engine.services.weather_forecast_services.WeatherForecastService;
 import io.mertkaniscan.automation_engine.services.device_services.SensorDataSocketService;
 import io.mertkaniscan.automation_engine.services.device_services.ActuatorCommandSocketService;
+import io.mertkaniscan.automation_engine.services.logic.WaterBalanceService;
+import io.mertkaniscan.automation_engine.utils.CalibrationCurve;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,6 +42,12 @@ public class FieldService {
     @Autowired
     private ActuatorCommandSocketService actuatorCommandSocketService;
 
+    @Autowired
+    private DeviceProperties deviceProperties;
+
+    @Autowired
+    private WaterBalanceService waterBalanceService;
+
     public Field saveField(Field field) {
 
         FieldConfig fieldConfig = configLoader.getFieldConfigs().stream()
@@ -52,7 +61,9 @@ public class FieldService {
         field.setSaturation(fieldConfig.getSaturation());
         field.setInfiltrationRate(fieldConfig.getInfiltrationRate());
 
-        return fieldRepository.save(field);
+        Field savedField = fieldRepository.save(field);
+        waterBalanceService.refreshParameters(savedField);
+        return savedField;
     }
 
     public List<Field> getAllFields() {
@@ -69,6 +80,8 @@ public class FieldService {
 
     public void deleteFieldById(int fieldId) {
         fieldRepository.deleteById(fieldId);
+        deviceService.evictDevicesOfField(fieldId);
+        waterBalanceService.removeField(fieldId);
     }
 
     public WeatherResponse getWeatherDataByFieldId(int fieldID) {
@@ -84,26 +97,41 @@ public class FieldService {
     public Field updateFieldWithPlant(int fieldID, Plant plant) {
         Field field = getFieldById(fieldID);
         field.setPlantInField(plant);
-        return fieldRepository.save(field);
+
+        Field savedField = fieldRepository.save(field);
+        // Root zone depth and allowable depletion come from the plant
+        waterBalanceService.refreshParameters(savedField);
+        return savedField;
     }
 
     public List<SensorDataDTO> getSensorDataValueByModel(int fieldId, String sensorModel) {
 
-        List<Device> devices = getDevicesByFieldId(fieldId);
-
-        return devices.stream()
-                .filter(device -> device.getDeviceModel().equalsIgnoreCase(sensorModel))
-                .map(device -> {
-                    try {
-                        return sensorDataSocketService.fetchSensorDataValue(device.getDeviceID());
-                    } catch (Exception e) {
-                        throw new RuntimeException("Error fetching sensor data for device ID: " + device.getDeviceID(), e);
-                    }
-                })
+        List<DeviceReadingDTO> deviceReadings = readFieldSensors(fieldId, sensorModel, null, 0);
+
+        for (DeviceReadingDTO deviceReading : deviceReadings) {
+            if (deviceReading.getStatus() == DeviceReadingDTO.Status.FAILED || deviceReading.getStatus() == DeviceReadingDTO.Status.TIMEOUT) {
+                throw new RuntimeException("Error fetching sensor data for device ID: " + deviceReading.getDeviceID() + ": " + deviceReading.getError());
+            }
+        }
+
+        return deviceReadings.stream()
+                .map(DeviceReadingDTO::getReadings)
                 .flatMap(List::stream)
                 .collect(Collectors.toList());
     }
 
+    // Reads every sensor of the field (optionally of one model) in parallel under one deadline, see fetchSensorDataValues
+    public List<DeviceReadingDTO> readFieldSensors(int fieldId, String sensorModel, Long timeoutMs, long maxAgeMs) {
+        List<Integer> deviceIDs = getDevicesByFieldId(fieldId).stream()
+                .filter(Device::isSensor)
+                .filter(device -> sensorModel == null || device.getDeviceModel().equalsIgnoreCase(sensorModel))
+                .map(Device::getDeviceID)
+                .collect(Collectors.toList());
+
+        long deadlineMs = timeoutMs != null ? timeoutMs : deviceProperties.getPoll().getFanOutTimeoutMs();
+        return sensorDataSocketService.fetchSensorDataValues(deviceIDs, deadlineMs, maxAgeMs);
+    }
+
     public String controlActuator(int fieldId, int deviceId, int degree) {
         Field field = getFieldById(fieldId);
 
@@ -138,15 +166,16 @@ public class FieldService {
         }
 
         // Kalibrasyon verilerini al
-        Map<Double, Integer> calibrationMap = device.getCalibrationMap();
-        Integer degree = calibrationMap.get(flowRate);
+        CalibrationCurve calibrationCurve = device.getCalibrationCurve();
+        double degree = calibrationCurve.degreeForFlow(flowRate);
 
-        if (degree == null) {
-            throw new IllegalArgumentException("Flow rate " + flowRate + " not found in device calibration data.");
+        if (Double.isNaN(degree)) {
+            throw new IllegalArgumentException("Flow rate " + flowRate + " is outside the calibrated range "
+                    + calibrationCurve.getMinFlowRate() + " - " + calibrationCurve.getMaxFlowRate() + " of the device.");
         }
 
         try {
-            return actuatorCommandSocketService.sendActuatorCommand(deviceId, degree);
+            return actuatorCommandSocketService.sendActuatorCommand(deviceId, (int) Math.round(degree));
         } catch (Exception e) {
             throw new RuntimeException("Failed to control actuator with ID " + deviceId + ": " + e.getMessage(), e);
         }
@@ -163,10 +192,6 @@ public class FieldService {
             throw new IllegalArgumentException("Device with ID " + deviceID + " not found in field with ID " + fieldID);
         }
 
-        Map<Double, Integer> calibrationMap = device.getCalibrationMap();
-        calibrationMap.put(flowRate, degree);
-        device.setCalibrationMap(calibrationMap);
-
-        deviceService.saveDevice(device);
+        deviceService.addCalibration(deviceID, degree, flowRate);
     }
 }
@@ -0,0 +1,189 @@
+package io.mertkaniscan.automation_engine.services.main_services;
+
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.models.SensorData;
+import io.mertkaniscan.automation_engine.services.device_services.SensorDataDTO;
+import io.mertkaniscan.automation_engine.utils.LttbDownsampler;
+import io.mertkaniscan.automation_engine.utils.ReadingRingBuffer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory window of the most recent readings per (field, data type) and per (device,
+ * data type), filled as polls arrive. Values live in primitive ring buffers, so recent-window queries are answered
+ * without touching MariaDB, boxing BigDecimal or creating entities. The number of series
+ * is capped by device.recent.max-memory-bytes; the least recently used series is evicted.
+ * The latest full reading of each device is kept as well, for live reads that accept
+ * a recent value instead of a round trip.
+ */
+@Service
+public class RecentReadingsService {
+
+    private static final Logger logger = LogManager.getLogger(RecentReadingsService.class);
+
+    private final int readingsPerSeries;
+    private final int maxSeries;
+    private final Map<SeriesKey, ReadingRingBuffer> series;
+    private final Map<Integer, DeviceReading> latestByDevice = new ConcurrentHashMap<>();
+
+    public RecentReadingsService(DeviceProperties deviceProperties) {
+        DeviceProperties.Recent recent = deviceProperties.getRecent();
+        this.readingsPerSeries = recent.getReadingsPerSeries();
+        this.maxSeries = (int) Math.max(1, recent.getMaxMemoryBytes() / (readingsPerSeries * ReadingRingBuffer.bytesPerReading()));
+
+        this.series = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SeriesKey, ReadingRingBuffer> eldest) {
+                if (size() > maxSeries) {
+                    logger.debug("Evicting recent readings for {} {} and type {}.", eldest.getKey().scope, eldest.getKey().id, eldest.getKey().dataType);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public record DeviceReading(long timestamp, List<SensorDataDTO> readings) {
+    }
+
+    public void record(List<SensorData> sensorDataList) {
+        Map<Integer, List<SensorDataDTO>> readingsByDevice = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+
+        for (SensorData sensorData : sensorDataList) {
+            long timestamp = sensorData.getTimestamp() != null ? sensorData.getTimestamp().getTime() : now;
+
+            if (sensorData.getDevice() != null) {
+                int deviceID = sensorData.getDevice().getDeviceID();
+                readingsByDevice.computeIfAbsent(deviceID, id -> new ArrayList<>())
+                        .add(new SensorDataDTO(sensorData.getDataType(), sensorData.getDataValue()));
+                buffer(new SeriesKey(Scope.DEVICE, deviceID, sensorData.getDataType())).add(timestamp, sensorData.getDataValue());
+            }
+            if (sensorData.getField() != null) {
+                record(sensorData.getField().getFieldID(), sensorData.getDataType(), timestamp, sensorData.getDataValue());
+            }
+        }
+
+        readingsByDevice.forEach((deviceID, readings) -> recordLatest(deviceID, now, readings));
+    }
+
+    public void recordLatest(int deviceID, long timestamp, List<SensorDataDTO> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        DeviceReading reading = new DeviceReading(timestamp, List.copyOf(readings));
+        latestByDevice.merge(deviceID, reading, (previous, next) -> next.timestamp() >= previous.timestamp() ? next : previous);
+    }
+
+    // Latest reading of the device if it is at most maxAgeMs old, otherwise null
+    public DeviceReading getLatestReading(int deviceID, long maxAgeMs) {
+        DeviceReading reading = latestByDevice.get(deviceID);
+        if (reading == null || System.currentTimeMillis() - reading.timestamp() > maxAgeMs) {
+            return null;
+        }
+        return reading;
+    }
+
+    public void record(int fieldID, String dataType, long timestamp, double value) {
+        buffer(new SeriesKey(Scope.FIELD, fieldID, dataType)).add(timestamp, value);
+    }
+
+    // True when every reading since sinceMs is still held in memory
+    public boolean covers(int fieldID, String dataType, long sinceMs) {
+        ReadingRingBuffer buffer = find(fieldID, dataType);
+        return buffer != null && buffer.oldestTimestamp() <= sinceMs;
+    }
+
+    // Readings after sinceMs, or null when the window is not (fully) held in memory
+    public LttbDownsampler.Series getSeriesSince(int fieldID, String dataType, long sinceMs) {
+        ReadingRingBuffer buffer = find(fieldID, dataType);
+        if (buffer == null || buffer.oldestTimestamp() > sinceMs) {
+            return null;
+        }
+        return buffer.snapshotSince(sinceMs);
+    }
+
+    public boolean forEachSince(int fieldID, String dataType, long sinceMs, ReadingRingBuffer.ReadingConsumer consumer) {
+        return forEachSince(find(fieldID, dataType), sinceMs, consumer);
+    }
+
+    // Same as forEachSince, over the readings of one device only rather than every device of its field
+    public boolean forEachDeviceReadingSince(int deviceID, String dataType, long sinceMs, ReadingRingBuffer.ReadingConsumer consumer) {
+        ReadingRingBuffer buffer;
+        synchronized (series) {
+            buffer = series.get(new SeriesKey(Scope.DEVICE, deviceID, dataType));
+        }
+        return forEachSince(buffer, sinceMs, consumer);
+    }
+
+    private static boolean forEachSince(ReadingRingBuffer buffer, long sinceMs, ReadingRingBuffer.ReadingConsumer consumer) {
+        if (buffer == null || buffer.oldestTimestamp() > sinceMs) {
+            return false;
+        }
+        buffer.forEachSince(sinceMs, consumer);
+        return true;
+    }
+
+    // Latest value, or NaN when nothing has been recorded for the series
+    public double getLatestValue(int fieldID, String dataType) {
+        ReadingRingBuffer buffer = find(fieldID, dataType);
+        return buffer == null ? Double.NaN : buffer.latestValue();
+    }
+
+    public int getSeriesCount() {
+        synchronized (series) {
+            return series.size();
+        }
+    }
+
+    private ReadingRingBuffer find(int fieldID, String dataType) {
+        synchronized (series) {
+            return series.get(new SeriesKey(Scope.FIELD, fieldID, dataType));
+        }
+    }
+
+    private ReadingRingBuffer buffer(SeriesKey key) {
+        synchronized (series) {
+            return series.computeIfAbsent(key, ignored -> new ReadingRingBuffer(readingsPerSeries));
+        }
+    }
+
+    // Field series merge every device of the field; device series back per-device statistics
+    private enum Scope {
+        FIELD,
+        DEVICE
+    }
+
+    private static final class SeriesKey {
+        private final Scope scope;
+        private final int id;
+        private final String dataType;
+
+        SeriesKey(Scope scope, int id, String dataType) {
+            this.scope = scope;
+            this.id = id;
+            this.dataType = dataType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SeriesKey)) return false;
+            SeriesKey that = (SeriesKey) o;
+            return scope == that.scope && id == that.id && dataType.equals(that.dataType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, id, dataType);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.mertkaniscan.automation_engine.services.main_services;
+
+import com.google.gson.stream.JsonWriter;
+import io.mertkaniscan.automation_engine.repositories.SensorDataRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole sensor_datas table as NDJSON or CSV while reading it as a JPA stream
+ * of scalar rows, so memory stays constant regardless of table size.
+ */
+@Service
+public class SensorDataExportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final String CSV_HEADER = "sensorDataID,dataType,dataValue,timestamp,deviceID,fieldID";
+
+    private final SensorDataRepository sensorDataRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public SensorDataExportService(SensorDataRepository sensorDataRepository, PlatformTransactionManager transactionManager) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Runs on the response thread, the stream needs its own transaction to stay open
+    public void export(Format format, OutputStream outputStream) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+
+            try (Stream<Object[]> rows = sensorDataRepository.streamAllForExport()) {
+                if (format == Format.CSV) {
+                    writeCsv(rows.iterator(), writer);
+                } else {
+                    writeNdjson(rows.iterator(), writer);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeNdjson(Iterator<Object[]> rows, Writer writer) throws IOException {
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("sensorDataID").value((Integer) row[0]);
+            jsonWriter.name("dataType").value((String) row[1]);
+            jsonWriter.name("dataValue").value((double) row[2]);
+            jsonWriter.name("timestamp").value(((Timestamp) row[3]).getTime());
+            jsonWriter.name("deviceID").value((Integer) row[4]);
+            jsonWriter.name("fieldID").value((Integer) row[5]);
+            jsonWriter.endObject();
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsv(Iterator<Object[]> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+
+            writer.write(String.valueOf(row[0]));
+            writer.write(',');
+            writer.write(escapeCsv((String) row[1]));
+            writer.write(',');
+            writer.write(BigDecimal.valueOf((double) row[2]).toPlainString());
+            writer.write(',');
+            writer.write(((Timestamp) row[3]).toInstant().toString());
+            writer.write(',');
+            writer.write(String.valueOf(row[4]));
+            writer.write(',');
+            writer.write(String.valueOf(row[5]));
+            writer.write('\n');
+        }
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
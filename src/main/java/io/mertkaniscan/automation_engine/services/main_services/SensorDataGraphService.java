@@ -0,0 +1,62 @@
+package io.mertkaniscan.automation_engine.services.main_services;
+
+import io.mertkaniscan.automation_engine.utils.LttbDownsampler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+
+/**
+ * Builds graph series for a field and data type. Raw readings are counted, then streamed
+ * row by row through a cursor into a streaming LTTB that buffers only two buckets, so the
+ * series is reduced to roughly one point per horizontal pixel without ever holding the
+ * whole range in memory.
+ */
+@Service
+public class SensorDataGraphService {
+
+    public static final int MIN_POINTS = 3;
+    public static final int MAX_POINTS = 5000;
+
+    // fieldid is the join column Spring's naming strategy derives from SensorData's @JoinColumn(name = "fieldID")
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM sensor_datas "
+            + "WHERE fieldid = ? AND data_type = ? AND timestamp > ? AND timestamp <= ?";
+
+    // LIMIT keeps rows inserted after the count from shifting the bucket boundaries
+    private static final String SERIES_SQL = "SELECT timestamp, data_value FROM sensor_datas "
+            + "WHERE fieldid = ? AND data_type = ? AND timestamp > ? AND timestamp <= ? ORDER BY timestamp ASC LIMIT ?";
+
+    private static final int FETCH_SIZE = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SensorDataGraphService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public LttbDownsampler.Series getDownsampledSeries(int fieldID, String dataType, Timestamp since, int width) {
+        int threshold = Math.max(MIN_POINTS, Math.min(width, MAX_POINTS));
+        Timestamp until = new Timestamp(System.currentTimeMillis());
+
+        Integer count = jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, fieldID, dataType, since, until);
+        if (count == null || count == 0) {
+            return new LttbDownsampler.Series(new long[0], new double[0]);
+        }
+
+        LttbDownsampler.Streaming sampler = new LttbDownsampler.Streaming(count, threshold);
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(SERIES_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setInt(1, fieldID);
+            statement.setString(2, dataType);
+            statement.setTimestamp(3, since);
+            statement.setTimestamp(4, until);
+            statement.setInt(5, count);
+            return statement;
+        }, (RowCallbackHandler) rs -> sampler.add(rs.getTimestamp(1).getTime(), rs.getDouble(2)));
+
+        return sampler.finish();
+    }
+}
@@ -0,0 +1,295 @@
+package io.mertkaniscan.automation_engine.services.main_services;
+
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import io.mertkaniscan.automation_engine.models.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers polled sensor readings on a bounded queue and writes them to sensor_datas in
+ * multi-row inserts, flushed when a batch fills up or its oldest reading gets too old.
+ * Producers block briefly when the queue is full; if the database still does not keep
+ * up, the oldest buffered reading is dropped so the freshest data survives. A batch that
+ * fails on a connection or lock error is retried and then queued again; a batch the
+ * database rejects outright is inserted row by row so only the bad readings are lost.
+ */
+@Service
+public class SensorDataIngestionService {
+
+    private static final Logger logger = LogManager.getLogger(SensorDataIngestionService.class);
+
+    // Join columns as named by Spring's physical naming strategy from @JoinColumn(name = "deviceID" / "fieldID")
+    private static final String INSERT_PREFIX = "INSERT INTO sensor_datas (data_type, data_value, timestamp, deviceid, fieldid) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+    private static final int COLUMNS_PER_ROW = 5;
+
+    private final DeviceProperties deviceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final SensorDataRollupService sensorDataRollupService;
+    private final BlockingQueue<SensorData> queue;
+
+    private final Timer flushTimer;
+    private final Counter persistedCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Counter invalidCounter;
+
+    private Thread flusherThread;
+    private volatile boolean running;
+
+    public SensorDataIngestionService(DeviceProperties deviceProperties, JdbcTemplate jdbcTemplate,
+                                      SensorDataRollupService sensorDataRollupService, MeterRegistry meterRegistry) {
+        this.deviceProperties = deviceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sensorDataRollupService = sensorDataRollupService;
+        this.queue = new ArrayBlockingQueue<>(deviceProperties.getIngestion().getQueueCapacity());
+
+        meterRegistry.gauge("sensor.ingestion.queue.depth", queue, BlockingQueue::size);
+        this.flushTimer = Timer.builder("sensor.ingestion.flush").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.persistedCounter = meterRegistry.counter("sensor.ingestion.readings", "outcome", "persisted");
+        this.droppedCounter = meterRegistry.counter("sensor.ingestion.readings", "outcome", "dropped");
+        this.failedCounter = meterRegistry.counter("sensor.ingestion.readings", "outcome", "failed");
+        this.invalidCounter = meterRegistry.counter("sensor.ingestion.readings", "outcome", "invalid");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusherThread = new Thread(this::runFlushLoop, "sensor-ingestion-flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusherThread.interrupt();
+        flusherThread.join(5000);
+    }
+
+    public void enqueue(List<SensorData> sensorDataList) {
+        long offerTimeoutMs = deviceProperties.getIngestion().getOfferTimeoutMs();
+
+        for (SensorData sensorData : sensorDataList) {
+            // Bean Validation does not run for JDBC inserts either, so SensorData's constraints are checked here
+            if (!isValid(sensorData)) {
+                invalidCounter.increment();
+                logger.debug("Dropping invalid {} reading {} from device {}.", sensorData.getDataType(), sensorData.getDataValue(),
+                        sensorData.getDevice() != null ? sensorData.getDevice().getDeviceID() : null);
+                continue;
+            }
+
+            // @PrePersist does not run for JDBC inserts, so stamp the reading with its poll time here
+            if (sensorData.getTimestamp() == null) {
+                sensorData.setTimestamp(new Timestamp(System.currentTimeMillis()));
+            }
+
+            try {
+                if (queue.offer(sensorData, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                droppedCounter.increment();
+                return;
+            }
+
+            while (!queue.offer(sensorData)) {
+                if (queue.poll() != null) {
+                    droppedCounter.increment();
+                }
+            }
+            logger.warn("Sensor ingestion queue full, dropped oldest buffered reading.");
+        }
+    }
+
+    // Mirrors @NotNull on dataType and @PositiveOrZero on dataValue
+    private static boolean isValid(SensorData sensorData) {
+        double value = sensorData.getDataValue();
+        return sensorData.getDataType() != null && Double.isFinite(value) && value >= 0;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runFlushLoop() {
+        DeviceProperties.Ingestion ingestion = deviceProperties.getIngestion();
+        List<SensorData> batch = new ArrayList<>(ingestion.getBatchSize());
+
+        while (running || !queue.isEmpty()) {
+            try {
+                SensorData first = queue.poll(ingestion.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long flushDeadline = System.currentTimeMillis() + ingestion.getFlushIntervalMs();
+                while (batch.size() < ingestion.getBatchSize()) {
+                    long remaining = flushDeadline - System.currentTimeMillis();
+                    if (queue.drainTo(batch, ingestion.getBatchSize() - batch.size()) > 0) {
+                        continue;
+                    }
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    SensorData next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down, drain whatever is left below
+                queue.drainTo(batch);
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        logger.info("Sensor ingestion flusher stopped.");
+    }
+
+    private void flush(List<SensorData> batch) {
+        int batchSize = deviceProperties.getIngestion().getBatchSize();
+
+        List<SensorData> valid = new ArrayList<>(batch.size());
+        for (SensorData sensorData : batch) {
+            // One reading without its device or field must not fail the insert for everyone else
+            if (sensorData.getDevice() == null || sensorData.getField() == null) {
+                failedCounter.increment();
+                logger.warn("Skipping {} reading without device or field.", sensorData.getDataType());
+            } else {
+                valid.add(sensorData);
+            }
+        }
+
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<SensorData> persisted = persist(valid.subList(from, Math.min(from + batchSize, valid.size())));
+            if (persisted.isEmpty()) {
+                continue;
+            }
+
+            try {
+                sensorDataRollupService.accumulate(persisted);
+            } catch (Exception e) {
+                logger.error("Failed to update rollups for batch of {} sensor readings: {}", persisted.size(), e.getMessage());
+            }
+        }
+    }
+
+    // Returns the rows that made it into the database
+    private List<SensorData> persist(List<SensorData> rows) {
+        DeviceProperties.Ingestion ingestion = deviceProperties.getIngestion();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flushTimer.record(() -> insertRows(rows));
+                persistedCounter.increment(rows.size());
+                return rows;
+            } catch (Exception e) {
+                if (!isRetryable(e)) {
+                    logger.error("Batch of {} sensor readings rejected, inserting one by one: {}", rows.size(), e.getMessage());
+                    return persistIndividually(rows);
+                }
+                if (attempt >= ingestion.getMaxFlushAttempts() || !running) {
+                    logger.error("Failed to persist batch of {} sensor readings after {} attempts: {}", rows.size(), attempt, e.getMessage());
+                    requeue(rows);
+                    return List.of();
+                }
+
+                logger.warn("Failed to persist batch of {} sensor readings (attempt {} of {}), retrying: {}",
+                        rows.size(), attempt, ingestion.getMaxFlushAttempts(), e.getMessage());
+                try {
+                    Thread.sleep(ingestion.getFlushRetryBackoffMs() * attempt);
+                } catch (InterruptedException interrupted) {
+                    // Shutting down; the loop above gets one last attempt
+                    running = false;
+                }
+            }
+        }
+    }
+
+    // Isolates the rows the database refuses, so the rest of the batch is still stored
+    private List<SensorData> persistIndividually(List<SensorData> rows) {
+        List<SensorData> persisted = new ArrayList<>(rows.size());
+        for (SensorData sensorData : rows) {
+            try {
+                insertRows(List.of(sensorData));
+                persisted.add(sensorData);
+            } catch (Exception e) {
+                failedCounter.increment();
+                logger.error("Dropping {} reading of device {}: {}", sensorData.getDataType(),
+                        sensorData.getDevice().getDeviceID(), e.getMessage());
+            }
+        }
+        persistedCounter.increment(persisted.size());
+        return persisted;
+    }
+
+    // Puts a batch that failed on a transient error back behind newer readings, or drops it when shutting down or full
+    private void requeue(List<SensorData> rows) {
+        int requeued = 0;
+        if (running) {
+            for (SensorData sensorData : rows) {
+                if (!queue.offer(sensorData)) {
+                    break;
+                }
+                requeued++;
+            }
+        }
+        if (requeued < rows.size()) {
+            failedCounter.increment(rows.size() - requeued);
+            logger.error("Dropped {} sensor readings that could not be persisted.", rows.size() - requeued);
+        }
+    }
+
+    private static boolean isRetryable(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void insertRows(List<SensorData> rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[rows.size() * COLUMNS_PER_ROW];
+
+        int i = 0;
+        for (SensorData sensorData : rows) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+
+            args[i++] = sensorData.getDataType();
+            args[i++] = sensorData.getDataValue();
+            args[i++] = sensorData.getTimestamp();
+            args[i++] = sensorData.getDevice().getDeviceID();
+            args[i++] = sensorData.getField().getFieldID();
+        }
+
+        jdbcTemplate.update(sql.toString(), args);
+    }
+}
@@ -0,0 +1,249 @@
+package io.mertkaniscan.automation_engine.services.main_services;
+
+import io.mertkaniscan.automation_engine.models.SensorData;
+import io.mertkaniscan.automation_engine.models.SensorDataPoint;
+import io.mertkaniscan.automation_engine.models.SensorDataRollup;
+import io.mertkaniscan.automation_engine.models.SensorDataRollupBackfill;
+import io.mertkaniscan.automation_engine.repositories.SensorDataRollupBackfillRepository;
+import io.mertkaniscan.automation_engine.repositories.SensorDataRollupRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains 5-minute, hourly and daily min/max/avg/count/last rollups of sensor readings
+ * in sensor_data_rollups. Each batch of new readings is pre-aggregated in memory and
+ * merged into the stored buckets with a single upsert per bucket, so history queries
+ * never have to scan raw rows. Readings stored before rollups were maintained are folded
+ * in by a resumable backfill: each window is committed together with the backfill's
+ * watermark, and an unfinished backfill is retried until it completes.
+ */
+@Service
+public class SensorDataRollupService {
+
+    private static final Logger logger = LogManager.getLogger(SensorDataRollupService.class);
+
+    private static final String UPSERT_SQL = "INSERT INTO sensor_data_rollups "
+            + "(field_id, data_type, resolution, bucket_start, min_value, max_value, sum_value, sample_count, last_value, last_timestamp) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "min_value = LEAST(min_value, VALUES(min_value)), "
+            + "max_value = GREATEST(max_value, VALUES(max_value)), "
+            + "sum_value = sum_value + VALUES(sum_value), "
+            + "sample_count = sample_count + VALUES(sample_count), "
+            // Evaluated before last_timestamp is updated below, so it compares against the stored value
+            + "last_value = IF(VALUES(last_timestamp) >= last_timestamp, VALUES(last_value), last_value), "
+            + "last_timestamp = GREATEST(last_timestamp, VALUES(last_timestamp))";
+
+    // fieldid is the join column Spring's naming strategy derives from SensorData's @JoinColumn(name = "fieldID")
+    private static final String BACKFILL_SELECT_SQL = "SELECT fieldid, data_type, data_value, timestamp FROM sensor_datas "
+            + "WHERE timestamp >= ? AND timestamp < ?";
+
+    private static final String BACKFILL_START_SQL = "SELECT MIN(timestamp) FROM sensor_datas WHERE timestamp >= ? AND timestamp < ?";
+
+    private static final int BACKFILL_FLUSH_ROWS = 10000;
+
+    // Raw history is read one window at a time and streamed within it, never as one result set
+    private static final long BACKFILL_WINDOW_MS = 24 * 60 * 60 * 1000L;
+    private static final int BACKFILL_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SensorDataRollupRepository sensorDataRollupRepository;
+    private final SensorDataRollupBackfillRepository backfillRepository;
+    private final TransactionTemplate backfillTransaction;
+
+    // Ingestion depends on this service, so every reading it stores from here on is rolled up live
+    private final Timestamp liveSince = new Timestamp(System.currentTimeMillis());
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private volatile boolean backfillCompleted;
+
+    public SensorDataRollupService(JdbcTemplate jdbcTemplate, SensorDataRollupRepository sensorDataRollupRepository,
+                                   SensorDataRollupBackfillRepository backfillRepository, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sensorDataRollupRepository = sensorDataRollupRepository;
+        this.backfillRepository = backfillRepository;
+        this.backfillTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Folds newly persisted readings into every rollup resolution
+    public void accumulate(List<SensorData> sensorDataList) {
+        Map<BucketKey, Bucket> buckets = new HashMap<>();
+
+        for (SensorData sensorData : sensorDataList) {
+            if (sensorData.getField() == null) {
+                continue;
+            }
+            add(buckets, sensorData.getField().getFieldID(), sensorData.getDataType(), sensorData.getDataValue(),
+                    sensorData.getTimestamp());
+        }
+        upsert(buckets);
+    }
+
+    /**
+     * Folds raw readings stored before the first start with rollups into the rollups. The
+     * cutoff is fixed when the backfill is first created, so readings rolled up live are
+     * never counted twice; progress survives restarts through the persisted watermark.
+     */
+    public void backfill() {
+        if (backfillCompleted || !backfillRunning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            SensorDataRollupBackfill progress = backfillRepository.findById(SensorDataRollupBackfill.ID)
+                    .orElseGet(() -> backfillRepository.save(new SensorDataRollupBackfill(liveSince)));
+            if (progress.isCompleted()) {
+                backfillCompleted = true;
+                return;
+            }
+
+            logger.info("Backfilling sensor data rollups from {} to {}.", progress.getWatermark(), progress.getCutoff());
+            JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+            streamingTemplate.setFetchSize(BACKFILL_FETCH_SIZE);
+
+            Timestamp until = progress.getCutoff();
+            Timestamp windowStart = jdbcTemplate.queryForObject(BACKFILL_START_SQL, Timestamp.class, progress.getWatermark(), until);
+
+            while (windowStart != null) {
+                Timestamp windowEnd = new Timestamp(Math.min(windowStart.getTime() + BACKFILL_WINDOW_MS, until.getTime()));
+                backfillWindow(streamingTemplate, progress, windowStart, windowEnd);
+
+                // Jumps over gaps in the history instead of querying every empty window
+                windowStart = windowEnd.before(until)
+                        ? jdbcTemplate.queryForObject(BACKFILL_START_SQL, Timestamp.class, windowEnd, until)
+                        : null;
+            }
+
+            progress.setWatermark(until);
+            progress.setCompleted(true);
+            backfillRepository.save(progress);
+            backfillCompleted = true;
+            logger.info("Sensor data rollup backfill finished.");
+        } catch (Exception e) {
+            logger.error("Sensor data rollup backfill failed, resuming from its watermark on the next attempt: {}", e.getMessage());
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    // Retries a backfill that failed or was interrupted by a shutdown
+    @Scheduled(initialDelayString = "${sensor-rollup.backfill-retry-interval-ms:600000}",
+            fixedDelayString = "${sensor-rollup.backfill-retry-interval-ms:600000}")
+    public void resumeBackfill() {
+        backfill();
+    }
+
+    // The window's rollups and the advanced watermark commit together, so a failed window is redone from its start
+    private void backfillWindow(JdbcTemplate streamingTemplate, SensorDataRollupBackfill progress,
+                                Timestamp windowStart, Timestamp windowEnd) {
+        backfillTransaction.executeWithoutResult(status -> {
+            Map<BucketKey, Bucket> buckets = new HashMap<>();
+            int[] rowsSinceFlush = {0};
+
+            streamingTemplate.query(BACKFILL_SELECT_SQL, rs -> {
+                add(buckets, rs.getInt("fieldid"), rs.getString("data_type"), rs.getDouble("data_value"), rs.getTimestamp("timestamp"));
+
+                if (++rowsSinceFlush[0] >= BACKFILL_FLUSH_ROWS) {
+                    upsert(buckets);
+                    buckets.clear();
+                    rowsSinceFlush[0] = 0;
+                }
+            }, windowStart, windowEnd);
+
+            upsert(buckets);
+            progress.setWatermark(windowEnd);
+            backfillRepository.save(progress);
+        });
+    }
+
+    public List<SensorDataRollup> getRollups(int fieldID, String dataType, SensorDataRollup.Resolution resolution, Timestamp since) {
+        return sensorDataRollupRepository.findByFieldIdAndTypeAndResolutionSince(fieldID, dataType, resolution, since);
+    }
+
+    public List<SensorDataRollup> getRollupsWithinLastDays(int fieldID, String dataType, int days) {
+        Timestamp since = new Timestamp(System.currentTimeMillis() - (days * 24 * 60 * 60 * 1000L));
+        return getRollups(fieldID, dataType, resolutionForDays(days), since);
+    }
+
+    // Bucket averages shaped like raw readings, for callers that plot timestamp/dataValue pairs
+    public List<SensorDataPoint> getAveragedPointsWithinLastDays(int fieldID, String dataType, int days) {
+        List<SensorDataRollup> rollups = getRollupsWithinLastDays(fieldID, dataType, days);
+        List<SensorDataPoint> points = new ArrayList<>(rollups.size());
+
+        for (SensorDataRollup rollup : rollups) {
+            points.add(new SensorDataPoint(rollup.getBucketStart(), rollup.getDataType(), rollup.getAvgValue().doubleValue()));
+        }
+        return points;
+    }
+
+    // Keeps every range at a few hundred points: day -> 5 min, week/month -> hour, longer -> day
+    public static SensorDataRollup.Resolution resolutionForDays(int days) {
+        if (days <= 1) {
+            return SensorDataRollup.Resolution.FIVE_MINUTES;
+        }
+        if (days <= 31) {
+            return SensorDataRollup.Resolution.HOUR;
+        }
+        return SensorDataRollup.Resolution.DAY;
+    }
+
+    private void add(Map<BucketKey, Bucket> buckets, int fieldID, String dataType, double value, Timestamp timestamp) {
+        if (timestamp == null) {
+            return;
+        }
+
+        for (SensorDataRollup.Resolution resolution : SensorDataRollup.Resolution.values()) {
+            BucketKey key = new BucketKey(fieldID, dataType, resolution, resolution.bucketStart(timestamp.getTime()));
+            buckets.computeIfAbsent(key, k -> new Bucket()).add(value, timestamp);
+        }
+    }
+
+    private void upsert(Map<BucketKey, Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(buckets.size());
+        buckets.forEach((key, bucket) -> batchArgs.add(new Object[]{
+                key.fieldID(), key.dataType(), key.resolution().name(), new Timestamp(key.bucketStartMs()),
+                bucket.min, bucket.max, bucket.sum, bucket.count, bucket.lastValue, bucket.lastTimestamp
+        }));
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batchArgs);
+    }
+
+    private record BucketKey(int fieldID, String dataType, SensorDataRollup.Resolution resolution, long bucketStartMs) {
+    }
+
+    private static class Bucket {
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long count;
+        private double lastValue;
+        private Timestamp lastTimestamp;
+
+        void add(double value, Timestamp timestamp) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+
+            if (lastTimestamp == null || !timestamp.before(lastTimestamp)) {
+                lastValue = value;
+                lastTimestamp = timestamp;
+            }
+        }
+    }
+}
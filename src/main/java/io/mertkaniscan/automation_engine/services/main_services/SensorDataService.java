@@ -1,8 +1,10 @@
 package io.mertkaniscan.automation_engine.services.main_services;
 
 import io.mertkaniscan.automation_engine.models.SensorData;
+import io.mertkaniscan.automation_engine.models.SensorDataPoint;
 import io.mertkaniscan.automation_engine.repositories.SensorDataRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
@@ -14,9 +16,14 @@ public class SensorDataService {
     @Autowired
     private SensorDataRepository sensorDataRepository;
 
+    @Autowired
+    private SensorDataRollupService sensorDataRollupService;
+
     // Save new sensor data
     public SensorData saveSensorData(SensorData sensorData) {
-        return sensorDataRepository.save(sensorData);
+        SensorData savedData = sensorDataRepository.save(sensorData);
+        sensorDataRollupService.accumulate(List.of(savedData));
+        return savedData;
     }
 
     // Get all sensor data
@@ -24,6 +31,11 @@ public class SensorDataService {
         return sensorDataRepository.findAll();
     }
 
+    // Keyset-paginated read, pass the last sensorDataID of the previous page (0 for the first page)
+    public List<SensorData> getSensorDataPage(int afterID, int limit) {
+        return sensorDataRepository.findPageAfterID(afterID, PageRequest.of(0, limit));
+    }
+
     // Get sensor data by ID
     public SensorData getSensorDataById(int id) {
         return sensorDataRepository.findById(id).orElse(null);
@@ -61,4 +73,17 @@ public class SensorDataService {
         Timestamp since = new Timestamp(System.currentTimeMillis() - (days * 24 * 60 * 60 * 1000L));
         return sensorDataRepository.findByFieldIdAndTypeAndTimestampAfter(fieldID, dataType, since);
     }
+
+    public List<SensorDataPoint> getSensorDataPointsByFieldIDAndType(int fieldID, String dataType) {
+        return sensorDataRepository.findPointsByFieldIDAndDataType(fieldID, dataType);
+    }
+
+    public List<SensorDataPoint> findPointsByFieldIdAndTypeAndTimestampAfter(int fieldID, String dataType, Timestamp since) {
+        return sensorDataRepository.findPointsByFieldIdAndTypeAndTimestampAfter(fieldID, dataType, since);
+    }
+
+    public List<SensorDataPoint> getSensorDataPointsWithinLastDays(int fieldID, String dataType, int days) {
+        Timestamp since = new Timestamp(System.currentTimeMillis() - (days * 24 * 60 * 60 * 1000L));
+        return sensorDataRepository.findPointsByFieldIdAndTypeAndTimestampAfter(fieldID, dataType, since);
+    }
 }
@@ -0,0 +1,112 @@
+package io.mertkaniscan.automation_engine.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary telemetry frame, offered to devices during the join handshake as
+ * "binary-v1". All integers are big-endian:
+ *
+ * <pre>
+ * magic     u8    0xA7
+ * version   u8    1
+ * length    u16   number of payload bytes that follow
+ * schemaId  u16   schemaId of the device model in sensor-conf.json
+ * count     u8    number of values
+ * values    f32 x count, in the order of the schema's expectedDataTypes (NaN = not measured)
+ * </pre>
+ */
+public final class BinaryTelemetryFrame {
+
+    public static final String PROTOCOL_NAME = "binary-v1";
+
+    public static final int MAGIC = 0xA7;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 4;
+
+    // Largest frame the u16 length can declare; readers must be able to buffer this much
+    public static final int MAX_FRAME_SIZE = HEADER_SIZE + 0xFFFF;
+
+    private static final int PAYLOAD_PREFIX_SIZE = 3;
+
+    private BinaryTelemetryFrame() {
+    }
+
+    // Total frame size once the header is available, -1 while more bytes are needed
+    public static int frameLength(byte[] buffer, int available) {
+        if (available < HEADER_SIZE) {
+            return -1;
+        }
+        int total = declaredLength(buffer);
+        return available >= total ? total : -1;
+    }
+
+    // Validates the header and returns the total frame size it declares
+    public static int declaredLength(byte[] header) {
+        if ((header[0] & 0xFF) != MAGIC) {
+            throw new IllegalArgumentException("Invalid binary telemetry frame magic: " + (header[0] & 0xFF));
+        }
+        if ((header[1] & 0xFF) != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary telemetry frame version: " + (header[1] & 0xFF));
+        }
+        return HEADER_SIZE + readUnsignedShort(header, 2);
+    }
+
+    public static TelemetryFrameReader.Frame read(byte[] buffer, int length, int expectedSchemaId,
+                                                  TelemetryFrameReader.ExpectedKeys expectedKeys) {
+        TelemetryFrameReader.Frame frame = new TelemetryFrameReader.Frame(expectedKeys.size());
+        read(buffer, length, expectedSchemaId, expectedKeys, frame);
+        return frame;
+    }
+
+    public static void read(byte[] buffer, int length, int expectedSchemaId,
+                            TelemetryFrameReader.ExpectedKeys expectedKeys, TelemetryFrameReader.Frame frame) {
+        int total = frameLength(buffer, length);
+        if (total < 0 || total - HEADER_SIZE < PAYLOAD_PREFIX_SIZE) {
+            throw new IllegalArgumentException("Truncated binary telemetry frame of " + length + " bytes.");
+        }
+
+        int schemaId = readUnsignedShort(buffer, HEADER_SIZE);
+        if (schemaId != expectedSchemaId) {
+            throw new IllegalArgumentException("Binary telemetry frame has schema " + schemaId + ", expected " + expectedSchemaId + ".");
+        }
+
+        int count = buffer[HEADER_SIZE + 2] & 0xFF;
+        int valuesOffset = HEADER_SIZE + PAYLOAD_PREFIX_SIZE;
+        if (valuesOffset + count * Float.BYTES > total) {
+            throw new IllegalArgumentException("Binary telemetry frame declares " + count + " values but is only " + total + " bytes.");
+        }
+
+        frame.reset();
+        int usable = Math.min(count, expectedKeys.size());
+        for (int i = 0; i < usable; i++) {
+            float value = Float.intBitsToFloat(readInt(buffer, valuesOffset + i * Float.BYTES));
+            if (!Float.isNaN(value)) {
+                frame.set(i, (double) value);
+            }
+        }
+    }
+
+    // Builds a frame the way a field node would, used by device simulators and benchmarks
+    public static byte[] encode(int schemaId, float[] values) {
+        int payloadLength = PAYLOAD_PREFIX_SIZE + values.length * Float.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+        buffer.put((byte) MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putShort((short) payloadLength);
+        buffer.putShort((short) schemaId);
+        buffer.put((byte) values.length);
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+        return buffer.array();
+    }
+
+    private static int readUnsignedShort(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16)
+                | ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,105 @@
+package io.mertkaniscan.automation_engine.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable flow-rate to valve-degree curve of one actuator, held as two sorted primitive
+ * arrays. Lookups in either direction binary-search the arrays and interpolate linearly
+ * between the neighbouring calibration points, so they are O(log n) and allocate nothing.
+ *
+ * Degrees are forced to be non-decreasing in flow rate (a noisy point lower than an
+ * earlier one is raised to it), which keeps the curve monotone and therefore invertible.
+ * Values outside the calibrated range are not extrapolated: lookups return NaN.
+ */
+public final class CalibrationCurve {
+
+    private static final CalibrationCurve EMPTY = new CalibrationCurve(new double[0], new double[0]);
+
+    private final double[] flowRates;
+    private final double[] degrees;
+
+    private CalibrationCurve(double[] flowRates, double[] degrees) {
+        this.flowRates = flowRates;
+        this.degrees = degrees;
+    }
+
+    public static CalibrationCurve empty() {
+        return EMPTY;
+    }
+
+    public static CalibrationCurve of(Map<Double, Integer> calibrationMap) {
+        if (calibrationMap == null || calibrationMap.isEmpty()) {
+            return EMPTY;
+        }
+
+        double[] flowRates = new double[calibrationMap.size()];
+        int count = 0;
+        for (Map.Entry<Double, Integer> point : calibrationMap.entrySet()) {
+            if (point.getKey() != null && Double.isFinite(point.getKey()) && point.getValue() != null) {
+                flowRates[count++] = point.getKey();
+            }
+        }
+        flowRates = Arrays.copyOf(flowRates, count);
+        Arrays.sort(flowRates);
+
+        double[] degrees = new double[count];
+        for (int i = 0; i < count; i++) {
+            Integer degree = calibrationMap.get(flowRates[i]);
+            degrees[i] = i > 0 ? Math.max(degree, degrees[i - 1]) : degree;
+        }
+        return new CalibrationCurve(flowRates, degrees);
+    }
+
+    public boolean isEmpty() {
+        return flowRates.length == 0;
+    }
+
+    public int size() {
+        return flowRates.length;
+    }
+
+    public double getMinFlowRate() {
+        return isEmpty() ? Double.NaN : flowRates[0];
+    }
+
+    public double getMaxFlowRate() {
+        return isEmpty() ? Double.NaN : flowRates[flowRates.length - 1];
+    }
+
+    // Valve degree that gives the flow rate, or NaN outside the calibrated range
+    public double degreeForFlow(double flowRate) {
+        return interpolate(flowRates, degrees, flowRate);
+    }
+
+    // Flow rate the valve gives at the degree, or NaN outside the calibrated range
+    public double flowForDegree(double degree) {
+        return interpolate(degrees, flowRates, degree);
+    }
+
+    // xs is sorted ascending; equal neighbours (flat stretches) resolve to the first of them
+    private static double interpolate(double[] xs, double[] ys, double x) {
+        int n = xs.length;
+        if (n == 0 || Double.isNaN(x) || x < xs[0] || x > xs[n - 1]) {
+            return Double.NaN;
+        }
+
+        // First index whose value is >= x
+        int low = 0;
+        int high = n - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        if (xs[low] == x || low == 0) {
+            return ys[low];
+        }
+        double fraction = (x - xs[low - 1]) / (xs[low] - xs[low - 1]);
+        return ys[low - 1] + fraction * (ys[low] - ys[low - 1]);
+    }
+}
@@ -8,6 +8,22 @@ public class DeviceJsonMessageFactory {
                 "}";
     }
 
+    // Join reply that also tells the device which telemetry format to answer polls with
+    public static String createDeviceJoinResponse(String joinResponse, String protocol, int schemaId) {
+        return "{" +
+                "\"messageType\": \"" + joinResponse + "\"," +
+                "\"protocol\": \"" + protocol + "\"," +
+                "\"schemaId\":" + schemaId +
+                "}";
+    }
+
+    // Reply to a push_hello, either push_accepted or push_refused
+    public static String createPushResponse(String pushResponse) {
+        return "{" +
+                "\"messageType\": \"" + pushResponse + "\"" +
+                "}";
+    }
+
     public static String pullSensorData() {
         return "{" +
                 "\"messageType\": \"send_sensordata\"" +
@@ -0,0 +1,146 @@
+package io.mertkaniscan.automation_engine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Single-threaded hashed timer wheel. Insert and cancel are O(1); expiry work is
+ * proportional to the number of timers that actually fire. Not thread-safe: the
+ * owning thread schedules, cancels and advances the wheel.
+ */
+public class HashedTimerWheel<T> {
+
+    public static final class Timeout<T> {
+        private final T task;
+        private final long deadline;
+        private long remainingRounds;
+        private int bucket = -1;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private HashedTimerWheel<T> wheel;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isPending() {
+            return wheel != null;
+        }
+
+        public boolean cancel() {
+            if (wheel == null) {
+                return false;
+            }
+            wheel.unlink(this);
+            return true;
+        }
+    }
+
+    private final long tickMs;
+    private final long startMs;
+    private final int mask;
+    private final Timeout<T>[] buckets;
+
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive.");
+        }
+        int normalizedSize = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.mask = normalizedSize - 1;
+        // Generic arrays cannot be created directly; the buckets only ever hold Timeout<T>
+        @SuppressWarnings("unchecked")
+        Timeout<T>[] emptyBuckets = (Timeout<T>[]) new Timeout<?>[normalizedSize];
+        this.buckets = emptyBuckets;
+    }
+
+    public Timeout<T> schedule(T task, long deadlineMs) {
+        Timeout<T> timeout = new Timeout<>(task, deadlineMs);
+
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMs - startMs + tickMs - 1, tickMs), currentTick);
+        timeout.remainingRounds = (deadlineTick - currentTick) / buckets.length;
+        timeout.bucket = (int) (deadlineTick & mask);
+        timeout.wheel = this;
+
+        Timeout<T> head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Fires every timer whose tick has passed, in tick order. The expired timers of a tick
+     * are collected first and fired after the bucket walk, so callbacks may cancel or
+     * schedule any timer. A timer cancelled by an earlier callback of the same tick does
+     * not fire, and a timer scheduled for the past lands in the next tick, not a full
+     * rotation later.
+     */
+    public void advance(long nowMs, Consumer<T> onExpired) {
+        long targetTick = Math.floorDiv(nowMs - startMs, tickMs);
+        List<Timeout<T>> expired = new ArrayList<>();
+
+        while (currentTick <= targetTick) {
+            Timeout<T> timeout = buckets[(int) (currentTick & mask)];
+            while (timeout != null) {
+                if (timeout.remainingRounds <= 0) {
+                    expired.add(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = timeout.next;
+            }
+            currentTick++;
+
+            for (Timeout<T> due : expired) {
+                // Still linked unless an earlier callback cancelled it
+                if (due.wheel == this) {
+                    unlink(due);
+                    onExpired.accept(due.task);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        size--;
+    }
+}
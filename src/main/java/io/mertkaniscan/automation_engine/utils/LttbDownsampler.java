@@ -0,0 +1,269 @@
+package io.mertkaniscan.automation_engine.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling over parallel primitive arrays. Keeps the
+ * first and last point and, for every bucket in between, the point forming the largest
+ * triangle with the previously kept point and the average of the next bucket. Runs in a
+ * single pass, O(n) time and O(threshold) extra memory.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    public static final class Series {
+        private final long[] timestamps;
+        private final double[] values;
+
+        public Series(long[] timestamps, double[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+    }
+
+    // Points must be sorted by timestamp; only the first length entries of the arrays are read
+    public static Series downsample(long[] timestamps, double[] values, int length, int threshold) {
+        if (threshold >= length || threshold < 3) {
+            long[] keptTimestamps = new long[length];
+            double[] keptValues = new double[length];
+            System.arraycopy(timestamps, 0, keptTimestamps, 0, length);
+            System.arraycopy(values, 0, keptValues, 0, length);
+            return new Series(keptTimestamps, keptValues);
+        }
+
+        long[] sampledTimestamps = new long[threshold];
+        double[] sampledValues = new double[threshold];
+
+        // First and last points are always kept, the rest are split into threshold - 2 buckets
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int selected = 0;
+        sampledTimestamps[0] = timestamps[0];
+        sampledValues[0] = values[0];
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket is the third vertex of the triangle
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += timestamps[i];
+                avgY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double selectedX = timestamps[selected];
+            double selectedY = values[selected];
+
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((selectedX - avgX) * (values[i] - selectedY)
+                        - (selectedX - timestamps[i]) * (avgY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            sampledTimestamps[bucket + 1] = timestamps[maxIndex];
+            sampledValues[bucket + 1] = values[maxIndex];
+            selected = maxIndex;
+        }
+
+        sampledTimestamps[threshold - 1] = timestamps[length - 1];
+        sampledValues[threshold - 1] = values[length - 1];
+        return new Series(sampledTimestamps, sampledValues);
+    }
+
+    /**
+     * The same downsampling fed one point at a time, for series too long to hold in memory.
+     * The number of points must be known up front (a COUNT before the scan) so the bucket
+     * boundaries match the batch version. Only the bucket being chosen from and the bucket
+     * after it are buffered, O(length / threshold) memory. Points past length are ignored;
+     * if fewer arrive, the last one received closes the series.
+     */
+    public static final class Streaming {
+        private final int length;
+        private final int threshold;
+        private final double bucketSize;
+        private final boolean passthrough;
+
+        private final long[] sampledTimestamps;
+        private final double[] sampledValues;
+        private int sampledSize;
+
+        // Bucket waiting for the average of the one after it
+        private long[] pendingTimestamps;
+        private double[] pendingValues;
+        private int pendingSize;
+
+        // Bucket being filled, and the sums for its average
+        private long[] currentTimestamps;
+        private double[] currentValues;
+        private int currentSize;
+        private double currentSumX;
+        private double currentSumY;
+        private int currentBucket;
+        private int currentEnd;
+
+        // Points after the last bucket, whose average is the third vertex for the last bucket
+        private int lastBucket;
+        private int tailEnd;
+        private double tailSumX;
+        private double tailSumY;
+        private int tailCount;
+        private boolean lastInTail;
+
+        private long selectedX;
+        private double selectedY;
+        private long lastX;
+        private double lastY;
+        private int received;
+
+        public Streaming(int length, int threshold) {
+            this.length = Math.max(length, 0);
+            this.threshold = threshold;
+            this.passthrough = threshold >= this.length || threshold < 3;
+            this.bucketSize = passthrough ? 0 : (double) (this.length - 2) / (threshold - 2);
+
+            int capacity = passthrough ? this.length : threshold;
+            this.sampledTimestamps = new long[capacity];
+            this.sampledValues = new double[capacity];
+
+            if (!passthrough) {
+                int bucketCapacity = (int) Math.ceil(bucketSize) + 1;
+                pendingTimestamps = new long[bucketCapacity];
+                pendingValues = new double[bucketCapacity];
+                currentTimestamps = new long[bucketCapacity];
+                currentValues = new double[bucketCapacity];
+                currentEnd = bucketEnd(0);
+                lastBucket = threshold - 3;
+                tailEnd = Math.min(bucketEnd(lastBucket + 1), this.length);
+            }
+        }
+
+        public void add(long timestamp, double value) {
+            int index = received;
+            if (index >= length) {
+                return;
+            }
+            received++;
+            lastX = timestamp;
+            lastY = value;
+
+            if (passthrough || index == 0) {
+                emit(timestamp, value);
+                selectedX = timestamp;
+                selectedY = value;
+                return;
+            }
+
+            while (currentBucket <= lastBucket && index >= currentEnd) {
+                closeCurrentBucket();
+            }
+
+            lastInTail = currentBucket > lastBucket;
+            if (!lastInTail) {
+                currentTimestamps[currentSize] = timestamp;
+                currentValues[currentSize] = value;
+                currentSize++;
+                currentSumX += timestamp;
+                currentSumY += value;
+            } else if (index < tailEnd) {
+                tailSumX += timestamp;
+                tailSumY += value;
+                tailCount++;
+            }
+        }
+
+        public Series finish() {
+            if (!passthrough && received > 1) {
+                boolean complete = received == length;
+                if (!complete && !lastInTail) {
+                    // Fewer points than counted: the last one received becomes the closing point
+                    currentSize--;
+                    currentSumX -= lastX;
+                    currentSumY -= lastY;
+                }
+                if (currentBucket <= lastBucket && currentSize > 0) {
+                    closeCurrentBucket();
+                }
+                if (pendingSize > 0) {
+                    if (complete) {
+                        selectFromPending(tailSumX / tailCount, tailSumY / tailCount);
+                    } else {
+                        selectFromPending(lastX, lastY);
+                    }
+                }
+                emit(lastX, lastY);
+            }
+
+            long[] timestamps = new long[sampledSize];
+            double[] values = new double[sampledSize];
+            System.arraycopy(sampledTimestamps, 0, timestamps, 0, sampledSize);
+            System.arraycopy(sampledValues, 0, values, 0, sampledSize);
+            return new Series(timestamps, values);
+        }
+
+        private int bucketEnd(int bucket) {
+            return (int) Math.floor((bucket + 1) * bucketSize) + 1;
+        }
+
+        private void closeCurrentBucket() {
+            if (pendingSize > 0) {
+                selectFromPending(currentSumX / currentSize, currentSumY / currentSize);
+            }
+
+            long[] swapTimestamps = pendingTimestamps;
+            double[] swapValues = pendingValues;
+            pendingTimestamps = currentTimestamps;
+            pendingValues = currentValues;
+            pendingSize = currentSize;
+            currentTimestamps = swapTimestamps;
+            currentValues = swapValues;
+            currentSize = 0;
+            currentSumX = 0;
+            currentSumY = 0;
+
+            currentBucket++;
+            currentEnd = bucketEnd(currentBucket);
+        }
+
+        private void selectFromPending(double avgX, double avgY) {
+            double maxArea = -1;
+            int maxIndex = 0;
+            for (int i = 0; i < pendingSize; i++) {
+                double area = Math.abs((selectedX - avgX) * (pendingValues[i] - selectedY)
+                        - (selectedX - pendingTimestamps[i]) * (avgY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            selectedX = pendingTimestamps[maxIndex];
+            selectedY = pendingValues[maxIndex];
+            emit(selectedX, selectedY);
+            pendingSize = 0;
+        }
+
+        private void emit(long timestamp, double value) {
+            sampledTimestamps[sampledSize] = timestamp;
+            sampledValues[sampledSize] = value;
+            sampledSize++;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.mertkaniscan.automation_engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity ring of (timestamp, value) readings kept in parallel primitive arrays.
+ * The oldest reading is overwritten once the ring is full. Readings are kept in timestamp
+ * order even when several devices or threads append out of order: a late reading is
+ * shifted into place, and one older than a full ring is dropped. Readers and the writer
+ * are synchronized on the buffer; reads copy into primitive arrays, nothing is boxed.
+ */
+public class ReadingRingBuffer {
+
+    @FunctionalInterface
+    public interface ReadingConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private final long[] timestamps;
+    private final double[] values;
+
+    // Index of the oldest reading
+    private int head;
+    private int size;
+
+    public ReadingRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    public static long bytesPerReading() {
+        return Long.BYTES + Double.BYTES;
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        int capacity = timestamps.length;
+        if (size == capacity) {
+            if (timestamp < timestamps[head]) {
+                return;
+            }
+            head = (head + 1) % capacity;
+            size--;
+        }
+
+        // Late readings are only a few slots behind the newest, so the shift stays short
+        int position = size;
+        while (position > 0) {
+            int previous = (head + position - 1) % capacity;
+            if (timestamps[previous] <= timestamp) {
+                break;
+            }
+            int current = (head + position) % capacity;
+            timestamps[current] = timestamps[previous];
+            values[current] = values[previous];
+            position--;
+        }
+
+        int index = (head + position) % capacity;
+        timestamps[index] = timestamp;
+        values[index] = value;
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    // Oldest retained timestamp, or Long.MAX_VALUE when empty
+    public synchronized long oldestTimestamp() {
+        return size == 0 ? Long.MAX_VALUE : timestamps[head];
+    }
+
+    public synchronized long latestTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps[(head + size - 1) % timestamps.length];
+    }
+
+    public synchronized double latestValue() {
+        return size == 0 ? Double.NaN : values[(head + size - 1) % timestamps.length];
+    }
+
+    public synchronized void forEachSince(long sinceMs, ReadingConsumer consumer) {
+        for (int i = firstIndexSince(sinceMs); i < size; i++) {
+            int index = (head + i) % timestamps.length;
+            consumer.accept(timestamps[index], values[index]);
+        }
+    }
+
+    public synchronized LttbDownsampler.Series snapshotSince(long sinceMs) {
+        int first = firstIndexSince(sinceMs);
+        int count = size - first;
+        long[] outTimestamps = new long[count];
+        double[] outValues = new double[count];
+
+        // Copy in at most two contiguous runs of the ring
+        int start = (head + first) % timestamps.length;
+        int firstRun = Math.min(count, timestamps.length - start);
+        System.arraycopy(timestamps, start, outTimestamps, 0, firstRun);
+        System.arraycopy(values, start, outValues, 0, firstRun);
+        System.arraycopy(timestamps, 0, outTimestamps, firstRun, count - firstRun);
+        System.arraycopy(values, 0, outValues, firstRun, count - firstRun);
+
+        return new LttbDownsampler.Series(outTimestamps, outValues);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(timestamps, 0L);
+        Arrays.fill(values, 0d);
+        head = 0;
+        size = 0;
+    }
+
+    // add() keeps the ring in time order, so the first reading after sinceMs is found by binary search
+    private int firstIndexSince(long sinceMs) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[(head + mid) % timestamps.length] > sinceMs) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,313 @@
+package io.mertkaniscan.automation_engine.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streaming reader for flat JSON telemetry frames such as {"depth_1": 512.25, ...}.
+ * Keys are compared byte-by-byte against a precomputed set of expected data types and
+ * numeric values are decoded straight from the bytes, so a frame is read without
+ * building a JSON tree or any intermediate Strings. Unknown keys and nested values are
+ * skipped, and an expected key whose value is not a valid number is marked invalid
+ * without failing the rest of the frame. Numbers with more than 18 significant digits fall back to Double.parseDouble.
+ */
+public final class TelemetryFrameReader {
+
+    // Exact powers of ten representable as doubles; mantissa / 10^n is then correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private TelemetryFrameReader() {
+    }
+
+    /**
+     * Expected data types of one device model, encoded once as UTF-8 bytes. At most 64
+     * types are supported so that presence can be reported as a bit mask.
+     */
+    public static final class ExpectedKeys {
+        private final String[] dataTypes;
+        private final byte[][] keys;
+
+        public ExpectedKeys(List<String> dataTypes) {
+            if (dataTypes.size() > Long.SIZE) {
+                throw new IllegalArgumentException("At most " + Long.SIZE + " expected data types are supported.");
+            }
+            this.dataTypes = dataTypes.toArray(new String[0]);
+            this.keys = new byte[this.dataTypes.length][];
+            for (int i = 0; i < this.dataTypes.length; i++) {
+                keys[i] = this.dataTypes[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        public int size() {
+            return dataTypes.length;
+        }
+
+        public String dataType(int index) {
+            return dataTypes[index];
+        }
+
+        int match(byte[] buffer, int start, int end) {
+            int length = end - start;
+            for (int i = 0; i < keys.length; i++) {
+                byte[] key = keys[i];
+                if (key.length == length && regionEquals(buffer, start, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean regionEquals(byte[] buffer, int start, byte[] key) {
+            for (int i = 0; i < key.length; i++) {
+                if (buffer[start + i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Decoded values indexed like the expected keys. A bit in presentMask is set when the
+     * key carried a number, a bit in invalidMask when the key was present with a non-numeric value.
+     */
+    public static final class Frame {
+        private final double[] values;
+        private long presentMask;
+        private long invalidMask;
+
+        public Frame(int size) {
+            this.values = new double[size];
+        }
+
+        public boolean isPresent(int index) {
+            return (presentMask & (1L << index)) != 0;
+        }
+
+        public boolean isInvalid(int index) {
+            return (invalidMask & (1L << index)) != 0;
+        }
+
+        public double value(int index) {
+            return values[index];
+        }
+
+        void reset() {
+            presentMask = 0;
+            invalidMask = 0;
+        }
+
+        void set(int index, double value) {
+            values[index] = value;
+            presentMask |= 1L << index;
+        }
+
+        void markInvalid(int index) {
+            invalidMask |= 1L << index;
+        }
+    }
+
+    public static Frame read(byte[] buffer, int offset, int length, ExpectedKeys expectedKeys) {
+        Frame frame = new Frame(expectedKeys.size());
+        read(buffer, offset, length, expectedKeys, frame);
+        return frame;
+    }
+
+    public static void read(byte[] buffer, int offset, int length, ExpectedKeys expectedKeys, Frame frame) {
+        frame.reset();
+
+        int end = offset + length;
+        int pos = skipWhitespace(buffer, offset, end);
+        pos = expect(buffer, pos, end, '{');
+        pos = skipWhitespace(buffer, pos, end);
+
+        if (pos < end && buffer[pos] == '}') {
+            return;
+        }
+
+        while (true) {
+            pos = expect(buffer, pos, end, '"');
+            int keyStart = pos;
+            int keyEnd = scanStringEnd(buffer, pos, end);
+            pos = keyEnd + 1;
+
+            pos = skipWhitespace(buffer, pos, end);
+            pos = expect(buffer, pos, end, ':');
+            pos = skipWhitespace(buffer, pos, end);
+
+            int index = expectedKeys.match(buffer, keyStart, keyEnd);
+            if (index >= 0 && pos < end && isNumberStart(buffer[pos])) {
+                int numberEnd = skipValue(buffer, pos, end);
+                try {
+                    frame.set(index, parseDouble(buffer, pos, numberEnd));
+                } catch (IllegalArgumentException e) {
+                    // One bad reading such as "12.3.4" only invalidates its own key, not the whole frame
+                    frame.markInvalid(index);
+                }
+                pos = numberEnd;
+            } else {
+                if (index >= 0) {
+                    frame.markInvalid(index);
+                }
+                pos = skipValue(buffer, pos, end);
+            }
+
+            pos = skipWhitespace(buffer, pos, end);
+            if (pos >= end) {
+                throw malformed("unterminated object", pos);
+            }
+            if (buffer[pos] == ',') {
+                pos = skipWhitespace(buffer, pos + 1, end);
+                continue;
+            }
+            if (buffer[pos] == '}') {
+                return;
+            }
+            throw malformed("expected ',' or '}'", pos);
+        }
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || (b >= '0' && b <= '9');
+    }
+
+    static double parseDouble(byte[] buffer, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (buffer[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        boolean sawDigit = false;
+
+        for (; pos < end; pos++) {
+            byte b = buffer[pos];
+            if (b >= '0' && b <= '9') {
+                sawDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                if (digits > 18) {
+                    return slowParse(buffer, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (inFraction) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !inFraction) {
+                inFraction = true;
+            } else if (b == 'e' || b == 'E') {
+                return slowParse(buffer, start, end);
+            } else {
+                throw malformed("invalid number", pos);
+            }
+        }
+
+        if (!sawDigit) {
+            throw malformed("invalid number", start);
+        }
+
+        double value;
+        if (mantissa <= MAX_EXACT_MANTISSA && fractionDigits < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[fractionDigits];
+        } else {
+            return slowParse(buffer, start, end);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(byte[] buffer, int start, int end) {
+        try {
+            return Double.parseDouble(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw malformed("invalid number", start);
+        }
+    }
+
+    // Returns the index of the closing quote
+    private static int scanStringEnd(byte[] buffer, int pos, int end) {
+        while (pos < end) {
+            byte b = buffer[pos];
+            if (b == '\\') {
+                pos += 2;
+            } else if (b == '"') {
+                return pos;
+            } else {
+                pos++;
+            }
+        }
+        throw malformed("unterminated string", pos);
+    }
+
+    private static int skipValue(byte[] buffer, int pos, int end) {
+        if (pos >= end) {
+            throw malformed("missing value", pos);
+        }
+
+        byte b = buffer[pos];
+        if (b == '"') {
+            return scanStringEnd(buffer, pos + 1, end) + 1;
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < end) {
+                b = buffer[pos];
+                if (b == '"') {
+                    pos = scanStringEnd(buffer, pos + 1, end) + 1;
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return pos + 1;
+                    }
+                }
+                pos++;
+            }
+            throw malformed("unterminated value", pos);
+        }
+
+        // Number, true, false or null
+        while (pos < end) {
+            b = buffer[pos];
+            if (b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int expect(byte[] buffer, int pos, int end, char expected) {
+        if (pos >= end || buffer[pos] != expected) {
+            throw malformed("expected '" + expected + "'", pos);
+        }
+        return pos + 1;
+    }
+
+    private static int skipWhitespace(byte[] buffer, int pos, int end) {
+        while (pos < end && isWhitespace(buffer[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static IllegalArgumentException malformed(String reason, int position) {
+        return new IllegalArgumentException("Malformed telemetry frame: " + reason + " at byte " + position);
+    }
+}
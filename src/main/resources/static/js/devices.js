@@ -129,4 +129,22 @@ function scheduleIrrigation(event) {
             console.error('Error:', error);
             alert('Error scheduling irrigation: ' + error.message);
         });
-}
\ No newline at end of file
+}
+document.addEventListener('DOMContentLoaded', function () {
+    // Live device status updates using SockJS and STOMP
+    var socket = new SockJS('/websocket');
+    var stompClient = Stomp.over(socket);
+    stompClient.debug = null;
+
+    stompClient.connect({}, function (frame) {
+        // Subscribe to /topic/deviceStatus, each message is a batch of status changes
+        stompClient.subscribe('/topic/deviceStatus', function (message) {
+            JSON.parse(message.body).forEach(function (change) {
+                const statusElement = document.getElementById(`status-${change.deviceID}`);
+                if (statusElement) {
+                    statusElement.textContent = change.deviceStatus;
+                }
+            });
+        });
+    });
+});
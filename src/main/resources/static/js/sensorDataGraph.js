@@ -2,7 +2,6 @@ document.addEventListener('DOMContentLoaded', function () {
 
 let fieldID = /*[[${fieldID}]]*/ '0';
 let dataType = /*[[${dataType}]]*/ '';
-let lastFetchedTimestamp = null; // Track the last fetched timestamp
 let selectedTimeRange = 'day'; // Track the selected time range
 let ctx = document.getElementById('sensorDataChart').getContext('2d');
 
@@ -87,31 +86,16 @@ let sensorDataChart = new Chart(ctx, {
     }
 });
 
-// Fetch historical sensor data
+// Fetch the downsampled series for the selected time range, one point per chart pixel at most
 function fetchHistoricalSensorData() {
     $.ajax({
-        url: '/api/sensor-data/' + fieldID + '/' + encodeURIComponent(dataType) + '?timeRange=' + selectedTimeRange,
+        url: '/api/sensor-data/' + fieldID + '/' + encodeURIComponent(dataType) + '/graph?timeRange=' + selectedTimeRange
+            + '&width=' + sensorDataChart.width,
         method: 'GET',
-        success: function (data) {
-            let labels = [];
-            let values = [];
-
-            // Sort the data by timestamp in case it's not sorted
-            data.sort((a, b) => new Date(a.timestamp) - new Date(b.timestamp));
-
-            data.forEach(sensorData => {
-                labels.push(new Date(sensorData.timestamp).toISOString());
-                values.push(sensorData.dataValue);
-            });
-
-            // Update chart data with historical data
-            sensorDataChart.data.labels = labels;
-            sensorDataChart.data.datasets[0].data = values;
-
-            // Update the last fetched timestamp to the most recent data point
-            if (data.length > 0) {
-                lastFetchedTimestamp = new Date(data[data.length - 1].timestamp);
-            }
+        success: function (series) {
+            // The server returns the series already sorted by timestamp
+            sensorDataChart.data.labels = series.timestamps.map(timestamp => new Date(timestamp).toISOString());
+            sensorDataChart.data.datasets[0].data = series.values;
 
             sensorDataChart.update();
         },
@@ -121,55 +105,15 @@ function fetchHistoricalSensorData() {
     });
 }
 
-// Fetch and update sensor data with live updates
-function fetchLiveSensorData() {
-    let sinceTimestamp = lastFetchedTimestamp ? lastFetchedTimestamp.toISOString() : new Date().toISOString();
-
-    $.ajax({
-        url: '/api/sensor-data/' + fieldID + '/' + encodeURIComponent(dataType) + '?since=' + sinceTimestamp + '&timeRange=' + selectedTimeRange,
-        method: 'GET',
-        success: function (data) {
-            let newDataAdded = false;
-
-            // Sort the incoming data just in case
-            data.sort((a, b) => new Date(a.timestamp) - new Date(b.timestamp));
-
-            // Add only new data points to the chart
-            data.forEach(sensorData => {
-                let timestamp = new Date(sensorData.timestamp).toISOString();
-                if (!sensorDataChart.data.labels.includes(timestamp)) {
-                    sensorDataChart.data.labels.push(timestamp);
-                    sensorDataChart.data.datasets[0].data.push(sensorData.dataValue);
-                    newDataAdded = true;
-                }
-            });
-
-            // Update the last fetched timestamp to the most recent data point
-            if (data.length > 0) {
-                lastFetchedTimestamp = new Date(data[data.length - 1].timestamp);
-            }
-
-            // Update chart only if new data was added
-            if (newDataAdded) {
-                sensorDataChart.update();
-            }
-        },
-        error: function (error) {
-            console.error('Error fetching live sensor data:', error);
-        }
-    });
-}
-
 // Initial fetch for historical data with the default time range
 fetchHistoricalSensorData();
 
-// Set interval for live updates
-setInterval(fetchLiveSensorData, 10000); // Update every 10 seconds
+// Set interval for live updates, the whole series is re-downsampled so new readings are merged in correctly
+setInterval(fetchHistoricalSensorData, 10000); // Update every 10 seconds
 
 // Event listener for time range change
 document.getElementById('timeRange').addEventListener('change', function() {
     selectedTimeRange = this.value; // Update the global selectedTimeRange variable
-    lastFetchedTimestamp = null; // Reset the last fetched timestamp
     fetchHistoricalSensorData(); // Fetch new data based on the selected time range
 });
 
@@ -0,0 +1,51 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.utils.DeviceExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Simulates blocking device conversations on a fixed platform pool and on virtual threads.
+// Run with a Java 21 runtime (mvn -Pjava21) to include the virtual thread results.
+public class DeviceExecutorBenchmark {
+
+    private static final int PLATFORM_THREADS = 32;
+    private static final long DEVICE_LATENCY_MS = 200;
+
+    public static void main(String[] args) throws Exception {
+        for (int devices : new int[]{1_000, 10_000}) {
+            run("platform(" + PLATFORM_THREADS + ")", DeviceExecutors.newPlatformExecutor(PLATFORM_THREADS, "bench"), devices);
+
+            if (DeviceExecutors.isVirtualThreadSupported()) {
+                run("virtual", DeviceExecutors.newVirtualExecutor(), devices);
+            } else {
+                System.out.println("virtual: skipped, requires Java 21 (running " + Runtime.version() + ")");
+            }
+        }
+    }
+
+    private static void run(String label, ExecutorService executor, int devices) throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(devices);
+
+        for (int i = 0; i < devices; i++) {
+            // Stands in for a socket write followed by a blocking read of the device's reply
+            futures.add(executor.submit(() -> {
+                Thread.sleep(DEVICE_LATENCY_MS);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+
+        System.out.printf("%-14s devices=%-6d elapsed=%6d ms  throughput=%8.1f polls/s%n",
+                label, devices, elapsedMs, devices * 1000.0 / elapsedMs);
+    }
+}
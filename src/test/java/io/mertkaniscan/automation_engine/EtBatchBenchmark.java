@@ -0,0 +1,66 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.components.Calculators;
+import io.mertkaniscan.automation_engine.components.EtBatch;
+
+import java.util.Random;
+
+// Scalar calculateFullETcDual per sample vs the fused calculateBatchETcDual for 10k fields x 48 hours
+public class EtBatchBenchmark {
+
+    private static final int FIELDS = 10_000;
+    private static final int HOURS = 48;
+    private static final int ROUNDS = 10;
+    private static final double ALBEDO = 0.23;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        EtBatch batch = new EtBatch(FIELDS, HOURS);
+
+        // Kcb, wettedArea, totalArea, FieldCapacity, WiltingPoint, Ze, DePrev, rain, irrigation
+        double[][] fields = new double[FIELDS][];
+        // T, humidity, pressure, ghi, windSpeed
+        double[][] hours = new double[FIELDS * HOURS][];
+
+        for (int f = 0; f < FIELDS; f++) {
+            double[] p = {0.3 + random.nextDouble(), 20 + random.nextDouble() * 80, 100, 0.3, 0.12,
+                    100 + random.nextDouble() * 50, random.nextDouble() * 20, random.nextDouble() * 5, random.nextDouble() * 5};
+            fields[f] = p;
+            batch.setField(f, p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7], p[8]);
+
+            for (int h = 0; h < HOURS; h++) {
+                double[] w = {5 + random.nextDouble() * 30, 20 + random.nextDouble() * 75, 98 + random.nextDouble() * 5,
+                        Math.max(0, Math.sin(h * Math.PI / 24)) * 900, random.nextDouble() * 8};
+                hours[batch.index(f, h)] = w;
+                batch.setHour(f, h, w[0], w[1], w[2], w[3], w[4]);
+            }
+        }
+
+        double[] scalar = new double[FIELDS * HOURS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int f = 0; f < FIELDS; f++) {
+                double[] p = fields[f];
+                for (int h = 0; h < HOURS; h++) {
+                    int i = batch.index(f, h);
+                    double[] w = hours[i];
+                    scalar[i] = Calculators.calculateFullETcDual(p[0], w[0], w[1], w[2], w[3], 0, 0, w[4],
+                            p[1], p[2], p[3], p[4], p[5], p[6], p[7], p[8], ALBEDO);
+                }
+            }
+            long scalarNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Calculators.calculateBatchETcDual(batch, ALBEDO);
+            long batchNanos = System.nanoTime() - start;
+
+            double maxError = 0;
+            for (int i = 0; i < scalar.length; i++) {
+                maxError = Math.max(maxError, Math.abs(scalar[i] - batch.getETc(i / HOURS, i % HOURS)));
+            }
+
+            System.out.printf("round %2d  scalar %7.2f ms  batch %7.2f ms  speedup %5.2fx  max |diff| %.2e%n",
+                    round, scalarNanos / 1e6, batchNanos / 1e6, (double) scalarNanos / batchNanos, maxError);
+        }
+    }
+}
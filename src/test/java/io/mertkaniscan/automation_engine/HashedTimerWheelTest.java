@@ -0,0 +1,116 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.utils.HashedTimerWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashedTimerWheelTest {
+
+    private static final long TICK_MS = 100;
+    private static final int WHEEL_SIZE = 512;
+
+    @Test
+    public void callbackCancellingTheNextTimerOfTheSameBucketKeepsTheOthers() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        Map<String, HashedTimerWheel.Timeout<String>> timeouts = new ConcurrentHashMap<>();
+
+        // Buckets are filled head first, so "a" is walked first and "b" directly after it
+        timeouts.put("c", wheel.schedule("c", 100));
+        timeouts.put("b", wheel.schedule("b", 100));
+        timeouts.put("a", wheel.schedule("a", 100));
+        HashedTimerWheel.Timeout<String> later = wheel.schedule("later", 300);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(100, task -> {
+            fired.add(task);
+            if (task.equals("a")) {
+                assertTrue(timeouts.get("b").cancel());
+            }
+        });
+
+        assertEquals(List.of("a", "c"), fired);
+        assertFalse(timeouts.get("b").isPending());
+        assertTrue(later.isPending());
+        assertEquals(1, wheel.size());
+
+        wheel.advance(300, fired::add);
+        assertEquals(List.of("a", "c", "later"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void callbackCancellingAnotherBucketUnlinksOnlyThatTimer() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        HashedTimerWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 500);
+        wheel.schedule("kept", 500);
+
+        wheel.advance(100, task -> {
+        });
+        wheel.schedule("canceller", 200);
+        wheel.advance(200, task -> cancelled.cancel());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(500, fired::add);
+        assertEquals(List.of("kept"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void timerScheduledFromCallbackForNowFiresOnTheNextTick() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        wheel.schedule("first", 100);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(100, task -> {
+            fired.add(task);
+            if (task.equals("first")) {
+                wheel.schedule("second", 100);
+            }
+        });
+        assertEquals(List.of("first"), fired);
+
+        // One tick later, not a full rotation of the wheel
+        wheel.advance(200, fired::add);
+        assertEquals(List.of("first", "second"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void timerScheduledFromCallbackWithinTheAdvancedRangeFiresInTheSameAdvance() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        wheel.schedule("first", 100);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1000, task -> {
+            fired.add(task);
+            if (task.equals("first")) {
+                wheel.schedule("second", 400);
+            }
+        });
+
+        assertEquals(List.of("first", "second"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelledTimerIsNotCountedTwice() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        HashedTimerWheel.Timeout<String> timeout = wheel.schedule("task", 100);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1000, fired::add);
+        assertTrue(fired.isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.utils.LttbDownsampler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LttbDownsamplerTest {
+
+    private static LttbDownsampler.Series stream(long[] timestamps, double[] values, int length, int threshold, int received) {
+        LttbDownsampler.Streaming streaming = new LttbDownsampler.Streaming(length, threshold);
+        for (int i = 0; i < received; i++) {
+            streaming.add(timestamps[i], values[i]);
+        }
+        return streaming.finish();
+    }
+
+    @Test
+    public void streamingMatchesBatchDownsampling() {
+        Random random = new Random(7);
+        int[][] cases = {{10, 3}, {11, 4}, {1000, 800}, {1000, 999}, {5000, 800}, {12345, 37}, {5, 800}, {2, 3}, {1, 3}, {0, 3}};
+
+        for (int[] shape : cases) {
+            int length = shape[0];
+            int threshold = shape[1];
+            long[] timestamps = new long[length];
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                timestamps[i] = 1_700_000_000_000L + i * 60_000L + random.nextInt(1000);
+                values[i] = Math.sin(i / 50.0) * 40 + random.nextGaussian() * 5;
+            }
+
+            LttbDownsampler.Series expected = LttbDownsampler.downsample(timestamps, values, length, threshold);
+            LttbDownsampler.Series actual = stream(timestamps, values, length, threshold, length);
+
+            String shapeName = length + " points to " + threshold;
+            assertTrue(Arrays.equals(expected.getTimestamps(), actual.getTimestamps()), shapeName);
+            assertTrue(Arrays.equals(expected.getValues(), actual.getValues()), shapeName);
+        }
+    }
+
+    @Test
+    public void pointsBeyondTheCountAreIgnored() {
+        long[] timestamps = new long[200];
+        double[] values = new double[200];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = i;
+            values[i] = i % 7;
+        }
+
+        LttbDownsampler.Series expected = LttbDownsampler.downsample(timestamps, values, 100, 10);
+        LttbDownsampler.Series actual = stream(timestamps, values, 100, 10, 200);
+
+        assertTrue(Arrays.equals(expected.getTimestamps(), actual.getTimestamps()));
+    }
+
+    @Test
+    public void fewerPointsThanCountedStillEndOnTheLastPoint() {
+        long[] timestamps = new long[100];
+        double[] values = new double[100];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = i;
+            values[i] = i % 5;
+        }
+
+        LttbDownsampler.Series actual = stream(timestamps, values, 100, 10, 60);
+        long[] sampled = actual.getTimestamps();
+
+        assertEquals(0L, sampled[0]);
+        assertEquals(59L, sampled[sampled.length - 1]);
+        assertTrue(sampled.length <= 10);
+        for (int i = 1; i < sampled.length; i++) {
+            assertTrue(sampled[i] > sampled[i - 1]);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.utils.LttbDownsampler;
+import io.mertkaniscan.automation_engine.utils.ReadingRingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadingRingBufferTest {
+
+    @Test
+    public void lateReadingsAreShiftedIntoTimeOrder() {
+        ReadingRingBuffer buffer = new ReadingRingBuffer(8);
+        // Two devices of one field, the second one's replies arriving late
+        long[] arrivals = {100, 200, 150, 300, 250, 400};
+        for (long timestamp : arrivals) {
+            buffer.add(timestamp, timestamp / 10.0);
+        }
+
+        LttbDownsampler.Series series = buffer.snapshotSince(0);
+        long[] timestamps = series.getTimestamps();
+        assertEquals(6, timestamps.length);
+        for (int i = 1; i < timestamps.length; i++) {
+            assertTrue(timestamps[i] >= timestamps[i - 1]);
+        }
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i] / 10.0, series.getValues()[i], 0.0);
+        }
+
+        List<Long> since = new ArrayList<>();
+        buffer.forEachSince(200, (timestamp, value) -> since.add(timestamp));
+        assertEquals(List.of(250L, 300L, 400L), since);
+    }
+
+    @Test
+    public void fullRingDropsTheOldestAndRejectsReadingsOlderThanIt() {
+        ReadingRingBuffer buffer = new ReadingRingBuffer(4);
+        for (long timestamp = 10; timestamp <= 40; timestamp += 10) {
+            buffer.add(timestamp, timestamp);
+        }
+
+        buffer.add(5, 5);
+        assertEquals(10L, buffer.oldestTimestamp());
+
+        buffer.add(25, 25);
+        assertEquals(4, buffer.size());
+        assertEquals(20L, buffer.oldestTimestamp());
+        assertEquals(40L, buffer.latestTimestamp());
+
+        List<Long> all = new ArrayList<>();
+        buffer.forEachSince(Long.MIN_VALUE, (timestamp, value) -> all.add(timestamp));
+        assertEquals(List.of(20L, 25L, 30L, 40L), all);
+    }
+
+    @Test
+    public void wrappedRingStaysOrdered() {
+        ReadingRingBuffer buffer = new ReadingRingBuffer(5);
+        for (long timestamp = 1; timestamp <= 7; timestamp++) {
+            buffer.add(timestamp * 10, timestamp);
+        }
+        buffer.add(55, 5.5);
+
+        List<Long> all = new ArrayList<>();
+        buffer.forEachSince(Long.MIN_VALUE, (timestamp, value) -> all.add(timestamp));
+        assertEquals(List.of(40L, 50L, 55L, 60L, 70L), all);
+        assertEquals(7.0, buffer.latestValue(), 0.0);
+    }
+}
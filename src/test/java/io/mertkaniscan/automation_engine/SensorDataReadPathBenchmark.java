@@ -0,0 +1,59 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.services.main_services.SensorDataService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Compares the entity and projection read paths against the configured database.
+// Run with: mvn test -Dtest=SensorDataReadPathBenchmark -Dbenchmark=true -Dbenchmark.fieldID=1 -Dbenchmark.dataType=soil_moisture
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class SensorDataReadPathBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Autowired
+    private SensorDataService sensorDataService;
+
+    @Test
+    public void compareEntityAndProjectionReads() {
+        int fieldID = Integer.getInteger("benchmark.fieldID", 1);
+        String dataType = System.getProperty("benchmark.dataType", "soil_moisture");
+        int days = Integer.getInteger("benchmark.days", 30);
+
+        measure("entity", () -> sensorDataService.getSensorDataByFieldIDAndTypeWithinLastDaysFromDb(fieldID, dataType, days));
+        measure("projection", () -> sensorDataService.getSensorDataPointsWithinLastDays(fieldID, dataType, days));
+    }
+
+    private void measure(String label, Supplier<List<?>> query) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            query.get();
+        }
+
+        long totalNanos = 0;
+        long totalBytes = 0;
+        int rows = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+
+            rows = query.get().size();
+
+            totalNanos += System.nanoTime() - start;
+            totalBytes += threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        }
+
+        System.out.printf("%-10s rows=%-8d avg latency=%8.2f ms  avg allocated=%10.1f KB%n",
+                label, rows, totalNanos / 1e6 / MEASURED_ROUNDS, totalBytes / 1024.0 / MEASURED_ROUNDS);
+    }
+}
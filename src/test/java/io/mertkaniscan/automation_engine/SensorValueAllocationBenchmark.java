@@ -0,0 +1,61 @@
+package io.mertkaniscan.automation_engine;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Allocation per poll of parsing a multi_soil_mois_temp_weather frame into BigDecimal vs double values
+public class SensorValueAllocationBenchmark {
+
+    private static final String FRAME = "{\"depth_1\": 512.25, \"depth_2\": 498.5, \"depth_3\": 471.75, \"depth_4\": 455.0, "
+            + "\"depth_5\": 430.25, \"depth_6\": 401.5, \"weather_temp\": 23.45, \"weather_hum\": 61.2}";
+    private static final String[] EXPECTED_TYPES = {"depth_1", "depth_2", "depth_3", "depth_4", "depth_5", "depth_6",
+            "weather_temp", "weather_hum"};
+    private static final int POLLS = 200_000;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            measure("BigDecimal", SensorValueAllocationBenchmark::parseBigDecimal);
+            measure("double", SensorValueAllocationBenchmark::parseDouble);
+        }
+    }
+
+    private static void measure(String label, Runnable poll) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < POLLS; i++) {
+            poll.run();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%-10s %8.1f bytes/poll  %8.2f us/poll%n", label, (double) allocated / POLLS, elapsedNanos / 1e3 / POLLS);
+    }
+
+    private static List<BigDecimal> parseBigDecimal() {
+        JsonObject jsonObject = JsonParser.parseString(FRAME).getAsJsonObject();
+        List<BigDecimal> values = new ArrayList<>(EXPECTED_TYPES.length);
+        for (String type : EXPECTED_TYPES) {
+            JsonElement element = jsonObject.get(type);
+            values.add(element.getAsBigDecimal());
+        }
+        return values;
+    }
+
+    private static double[] parseDouble() {
+        JsonObject jsonObject = JsonParser.parseString(FRAME).getAsJsonObject();
+        double[] values = new double[EXPECTED_TYPES.length];
+        for (int i = 0; i < EXPECTED_TYPES.length; i++) {
+            values[i] = jsonObject.get(EXPECTED_TYPES[i]).getAsDouble();
+        }
+        return values;
+    }
+}
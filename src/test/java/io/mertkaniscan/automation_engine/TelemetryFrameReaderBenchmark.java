@@ -0,0 +1,68 @@
+package io.mertkaniscan.automation_engine;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.mertkaniscan.automation_engine.utils.TelemetryFrameReader;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Gson tree parsing vs the streaming TelemetryFrameReader on a multi_soil_mois_temp_weather frame
+public class TelemetryFrameReaderBenchmark {
+
+    private static final String FRAME = "{\"depth_1\": 512.25, \"depth_2\": 498.5, \"depth_3\": 471.75, \"depth_4\": 455.0, "
+            + "\"depth_5\": 430.25, \"depth_6\": 401.5, \"weather_temp\": 23.45, \"weather_hum\": 61.2}";
+    private static final List<String> EXPECTED_TYPES = List.of("depth_1", "depth_2", "depth_3", "depth_4", "depth_5", "depth_6",
+            "weather_temp", "weather_hum");
+    private static final int FRAMES = 500_000;
+
+    private static final byte[] FRAME_BYTES = FRAME.getBytes(StandardCharsets.UTF_8);
+    private static final TelemetryFrameReader.ExpectedKeys EXPECTED_KEYS = new TelemetryFrameReader.ExpectedKeys(EXPECTED_TYPES);
+    private static final TelemetryFrameReader.Frame REUSED_FRAME = new TelemetryFrameReader.Frame(EXPECTED_TYPES.size());
+
+    private static double sink;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            measure("gson", TelemetryFrameReaderBenchmark::parseWithGson);
+            measure("streaming", TelemetryFrameReaderBenchmark::parseStreaming);
+        }
+    }
+
+    private static void measure(String label, Runnable parse) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            parse.run();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%-10s %8.1f bytes/frame  %8.3f us/frame%n", label, (double) allocated / FRAMES, elapsedNanos / 1e3 / FRAMES);
+    }
+
+    // The previous SensorDataSocketService path: String -> Gson tree -> has/get per expected type
+    private static void parseWithGson() {
+        JsonObject jsonObject = JsonParser.parseString(new String(FRAME_BYTES, StandardCharsets.UTF_8)).getAsJsonObject();
+        for (String type : EXPECTED_TYPES) {
+            if (jsonObject.has(type)) {
+                JsonElement element = jsonObject.get(type);
+                sink += element.getAsDouble();
+            }
+        }
+    }
+
+    private static void parseStreaming() {
+        TelemetryFrameReader.read(FRAME_BYTES, 0, FRAME_BYTES.length, EXPECTED_KEYS, REUSED_FRAME);
+        for (int i = 0; i < EXPECTED_KEYS.size(); i++) {
+            if (REUSED_FRAME.isPresent(i)) {
+                sink += REUSED_FRAME.value(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.utils.TelemetryFrameReader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TelemetryFrameReaderTest {
+
+    private static final TelemetryFrameReader.ExpectedKeys KEYS =
+            new TelemetryFrameReader.ExpectedKeys(List.of("depth_1", "depth_2", "weather_temp", "weather_hum"));
+
+    private static TelemetryFrameReader.Frame read(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return TelemetryFrameReader.read(bytes, 0, bytes.length, KEYS);
+    }
+
+    @Test
+    public void readsExpectedKeysAndSkipsOthers() {
+        TelemetryFrameReader.Frame frame = read("{\"depth_1\": 512.25, \"extra\": {\"a\": [1, 2]}, \"weather_temp\": -3.5e1}");
+
+        assertTrue(frame.isPresent(0));
+        assertEquals(512.25, frame.value(0), 0.0);
+        assertFalse(frame.isPresent(1));
+        assertTrue(frame.isPresent(2));
+        assertEquals(-35.0, frame.value(2), 0.0);
+    }
+
+    @Test
+    public void malformedNumberInvalidatesOnlyItsKey() {
+        TelemetryFrameReader.Frame frame = read("{\"depth_1\": 12.3.4, \"depth_2\": 1e5x, \"weather_temp\": 23.45, \"weather_hum\": 61}");
+
+        assertFalse(frame.isPresent(0));
+        assertTrue(frame.isInvalid(0));
+        assertFalse(frame.isPresent(1));
+        assertTrue(frame.isInvalid(1));
+        assertTrue(frame.isPresent(2));
+        assertEquals(23.45, frame.value(2), 0.0);
+        assertTrue(frame.isPresent(3));
+        assertEquals(61.0, frame.value(3), 0.0);
+    }
+
+    @Test
+    public void nonNumericValueIsMarkedInvalid() {
+        TelemetryFrameReader.Frame frame = read("{\"depth_1\": \"n/a\", \"depth_2\": null, \"weather_temp\": 20}");
+
+        assertTrue(frame.isInvalid(0));
+        assertTrue(frame.isInvalid(1));
+        assertTrue(frame.isPresent(2));
+    }
+
+    @Test
+    public void brokenStructureStillFailsTheFrame() {
+        boolean failed = false;
+        try {
+            read("{\"depth_1\": 12 \"depth_2\": 3}");
+        } catch (IllegalArgumentException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+    }
+}
@@ -0,0 +1,105 @@
+package io.mertkaniscan.automation_engine;
+
+import io.mertkaniscan.automation_engine.components.TimerWheelScheduler;
+import io.mertkaniscan.automation_engine.config.DeviceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimerWheelSchedulerTest {
+
+    private static TimerWheelScheduler startScheduler(ExecutorService executor) {
+        DeviceProperties deviceProperties = new DeviceProperties();
+        deviceProperties.getTimer().setTickMs(10);
+        deviceProperties.getTimer().setWheelSize(64);
+
+        TimerWheelScheduler scheduler = new TimerWheelScheduler(deviceProperties, executor);
+        scheduler.start();
+        return scheduler;
+    }
+
+    @Test
+    public void timersSharingATickFireUnlessCancelled() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TimerWheelScheduler scheduler = startScheduler(executor);
+        try {
+            Set<Integer> fired = ConcurrentHashMap.newKeySet();
+            CountDownLatch done = new CountDownLatch(50);
+            List<TimerWheelScheduler.Timer> timers = new ArrayList<>();
+
+            long deadline = System.currentTimeMillis() + 200;
+            for (int i = 0; i < 100; i++) {
+                int id = i;
+                timers.add(scheduler.scheduleAt(() -> {
+                    fired.add(id);
+                    done.countDown();
+                }, deadline));
+            }
+            for (int i = 1; i < 100; i += 2) {
+                scheduler.cancel(timers.get(i));
+            }
+
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(50, fired.size());
+            assertTrue(fired.stream().allMatch(id -> id % 2 == 0));
+            assertEquals(0, scheduler.getPendingTimerCount());
+        } finally {
+            scheduler.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void taskScheduledFromATaskRunsWithinATick() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        TimerWheelScheduler scheduler = startScheduler(executor);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            long[] firedAt = new long[2];
+
+            scheduler.schedule(() -> {
+                firedAt[0] = System.currentTimeMillis();
+                scheduler.schedule(() -> {
+                    firedAt[1] = System.currentTimeMillis();
+                    done.countDown();
+                }, 0, TimeUnit.MILLISECONDS);
+            }, 50, TimeUnit.MILLISECONDS);
+
+            // A full rotation of this wheel would be 640 ms
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertTrue(firedAt[1] - firedAt[0] < 200, "follow-up ran " + (firedAt[1] - firedAt[0]) + " ms later");
+        } finally {
+            scheduler.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fixedRateTimerKeepsFiringUntilCancelled() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        TimerWheelScheduler scheduler = startScheduler(executor);
+        try {
+            CountDownLatch runs = new CountDownLatch(5);
+            TimerWheelScheduler.Timer timer = scheduler.scheduleAtFixedRate(runs::countDown, 0, 20, TimeUnit.MILLISECONDS);
+
+            assertTrue(runs.await(2, TimeUnit.SECONDS));
+            scheduler.cancel(timer);
+            Thread.sleep(100);
+            assertEquals(0, scheduler.getPendingTimerCount());
+        } finally {
+            scheduler.stop();
+            executor.shutdownNow();
+        }
+    }
+}